@@ -32,12 +32,11 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
   public static final Error ERR_NO_TOKEN =
       new Error().withType("Error").withMessage("No Okapi Token provided");
 
-  public void deployWorkerVerticle(Vertx vertx, Token token, String providerId) {
+  public void deployWorkerVerticle(
+      Vertx vertx, Token token, String providerId, boolean reprocess) {
     Promise<String> deploy = Promise.promise();
     WorkerVerticle verticle =
-        (Strings.isNullOrEmpty(providerId))
-            ? new WorkerVerticle(token)
-            : new WorkerVerticle(token, providerId);
+        new WorkerVerticle(token, Strings.isNullOrEmpty(providerId) ? null : providerId, reprocess);
     vertx.deployVerticle(
         verticle, new DeploymentOptions().setConfig(vertx.getOrCreateContext().config()), deploy);
 
@@ -57,6 +56,7 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
 
   @Override
   public void getErmUsageHarvesterStart(
+      String reprocess,
       Map<String, String> okapiHeaders,
       Handler<AsyncResult<Response>> asyncResultHandler,
       Context vertxContext) {
@@ -71,7 +71,7 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
     Token token = new Token(tokenStr);
     String msg = String.format("Processing of tenant: %s requested.", token.getTenantId());
     log.info(msg);
-    deployWorkerVerticle(vertxContext.owner(), token, null);
+    deployWorkerVerticle(vertxContext.owner(), token, null, Boolean.parseBoolean(reprocess));
     String result = new JsonObject().put("message", msg).toString();
     asyncResultHandler.handle(
         Future.succeededFuture(Response.ok(result, MediaType.APPLICATION_JSON_TYPE).build()));
@@ -80,6 +80,7 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
   @Override
   public void getErmUsageHarvesterStartById(
       String id,
+      String reprocess,
       Map<String, String> okapiHeaders,
       Handler<AsyncResult<Response>> asyncResultHandler,
       Context vertxContext) {
@@ -96,7 +97,7 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
         String.format(
             "Processing of ProviderId: %s, Tenant: %s requested.", id, token.getTenantId());
     log.info(msg);
-    deployWorkerVerticle(vertxContext.owner(), token, id);
+    deployWorkerVerticle(vertxContext.owner(), token, id, Boolean.parseBoolean(reprocess));
     String result = new JsonObject().put("message", msg).toString();
     asyncResultHandler.handle(
         Future.succeededFuture(Response.ok(result, MediaType.APPLICATION_JSON_TYPE).build()));
@@ -8,7 +8,13 @@ import io.vertx.core.Vertx;
 import java.util.List;
 import org.folio.rest.jaxrs.model.PeriodicConfig;
 import org.folio.rest.resource.interfaces.PostDeployVerticle;
+import org.olf.erm.usage.harvester.HarvestJournalPgUtil;
 import org.olf.erm.usage.harvester.OkapiClient;
+import org.olf.erm.usage.harvester.SharedWebClient;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpointContext;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpointRegistry;
+import org.olf.erm.usage.harvester.endpoints.ServiceExecutors;
+import org.olf.erm.usage.harvester.periodic.HarvestTenantJob;
 import org.olf.erm.usage.harvester.periodic.PeriodicConfigPgUtil;
 import org.olf.erm.usage.harvester.periodic.SchedulingUtil;
 import org.quartz.Scheduler;
@@ -23,24 +29,65 @@ public class PostDeployImpl implements PostDeployVerticle {
 
   private void processTenants(Context vertxContext, List<String> tenantList) {
     tenantList.forEach(
-        tenant ->
-            PeriodicConfigPgUtil.get(vertxContext, tenant)
-                .setHandler(
-                    ar -> {
-                      if (ar.succeeded()) {
-                        PeriodicConfig periodicConfig = ar.result();
-                        SchedulingUtil.createOrUpdateJob(periodicConfig, tenant);
-                      } else {
-                        log.error(
-                            "Tenant: {}, failed getting PeriodicConfig: {}",
-                            tenant,
-                            ar.cause().getMessage());
-                      }
-                    }));
+        tenant -> {
+          PeriodicConfigPgUtil.get(vertxContext, tenant)
+              .setHandler(
+                  ar -> {
+                    if (ar.succeeded()) {
+                      PeriodicConfig periodicConfig = ar.result();
+                      SchedulingUtil.createOrUpdateJob(periodicConfig, tenant);
+                    } else {
+                      log.error(
+                          "Tenant: {}, failed getting PeriodicConfig: {}",
+                          tenant,
+                          ar.cause().getMessage());
+                    }
+                  });
+          resumeInterruptedRun(vertxContext, tenant);
+        });
+  }
+
+  /**
+   * Starts harvesting again if a run of the tenant has left unprocessed items in the journal. Items
+   * of runs that are still running, e.g. on another instance of the module, are left alone.
+   */
+  private void resumeInterruptedRun(Context vertxContext, String tenant) {
+    if (!HarvestJournalPgUtil.isEnabled(vertxContext.config())) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long since = now - HarvestJournalPgUtil.getMaxAgeMillis(vertxContext.config());
+    long staleBefore = now - HarvestJournalPgUtil.getStaleMillis(vertxContext.config());
+    HarvestJournalPgUtil.hasEntries(vertxContext.owner(), tenant, since, staleBefore)
+        .compose(
+            interrupted ->
+                interrupted
+                    ? HarvestTenantJob.startHarvesting(vertxContext, tenant).map(true)
+                    : Future.succeededFuture(false))
+        .setHandler(
+            ar -> {
+              if (ar.failed()) {
+                log.error(
+                    "Tenant: {}, failed resuming interrupted harvesting: {}",
+                    tenant,
+                    ar.cause().getMessage());
+              } else if (Boolean.TRUE.equals(ar.result())) {
+                log.info("Tenant: {}, resumed interrupted harvesting", tenant);
+              }
+            });
   }
 
   @Override
   public void init(Vertx arg0, Context arg1, Handler<AsyncResult<Boolean>> arg2) {
+    // create the shared client here, so it lives as long as the module does
+    SharedWebClient.init(arg0, arg1, arg1.config());
+    // scan the classpath for service implementations once
+    ServiceEndpointRegistry.init();
+    ServiceExecutors.configure(arg1.config());
+    ServiceEndpointContext.configure(arg1.config());
+    // shared clients of the endpoints are created on this context, so they live as long as it does
+    ServiceEndpointContext.init(arg0, arg1);
+
     if (Boolean.TRUE.equals(arg1.config().getBoolean("testing"))) {
       log.info("Skipping PostDeployImpl (testing==true)");
       arg2.handle(Future.succeededFuture(true));
@@ -9,13 +9,13 @@ import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.HttpResponse;
-import io.vertx.ext.web.client.WebClient;
 import java.util.Map;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.folio.okapi.common.XOkapiHeaders;
 import org.folio.rest.jaxrs.resource.Start;
 import org.olf.erm.usage.harvester.OkapiClient;
+import org.olf.erm.usage.harvester.SharedWebClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,8 +34,8 @@ public class StartAPI implements Start {
                   tenantId -> {
                     // call /start endpoint for each tenant
                     Promise<HttpResponse<Buffer>> startTenant = Promise.promise();
-                    String okapiUrl = vertx.getOrCreateContext().config().getString("okapiUrl");
-                    WebClient.create(vertx)
+                    String okapiUrl = config.getString("okapiUrl");
+                    SharedWebClient.get(vertx)
                         .getAbs(okapiUrl + "/erm-usage-harvester/start")
                         .putHeader(XOkapiHeaders.TENANT, tenantId)
                         .send(startTenant);
@@ -0,0 +1,134 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.folio.rest.jaxrs.model.AggregatorSetting;
+import org.folio.rest.jaxrs.model.Report;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+
+/**
+ * Requests of all providers harvested via the same aggregator during one harvesting run. The
+ * {@link AggregatorSetting} is requested once for all providers, fetches are queued under a
+ * common scheduler key so they are paced as one batch, and identical fetches of providers with the
+ * same vendor code that are in flight at the same time share a single request.
+ */
+public class AggregatorBatch {
+
+  private static final String SETTING_KEY = "setting";
+
+  private final String aggregatorId;
+  private final SingleFlight singleFlight = new SingleFlight();
+  private final AtomicLong settingRequests = new AtomicLong();
+  private final AtomicLong fetches = new AtomicLong();
+  private volatile AggregatorSetting setting;
+
+  public AggregatorBatch(String aggregatorId) {
+    this.aggregatorId = Objects.requireNonNull(aggregatorId);
+  }
+
+  /** Returns the key all fetches of this batch are queued under in the {@link FetchScheduler}. */
+  public String getSchedulerKey() {
+    return "aggregator:" + aggregatorId;
+  }
+
+  /**
+   * Returns the aggregator setting, requesting it with the given supplier if it has not been
+   * resolved yet. Failures are not cached, so the next provider requests the setting again.
+   */
+  public Future<AggregatorSetting> getSetting(Supplier<Future<AggregatorSetting>> request) {
+    AggregatorSetting resolved = setting;
+    if (resolved != null) {
+      return Future.succeededFuture(resolved);
+    }
+    return singleFlight.execute(
+        SETTING_KEY,
+        () -> {
+          settingRequests.incrementAndGet();
+          return request
+              .get()
+              .map(
+                  s -> {
+                    setting = s;
+                    return s;
+                  });
+        });
+  }
+
+  /**
+   * Returns an endpoint coalescing identical fetches of all providers of this batch with the given
+   * vendor code. Only needed if the endpoint is not wrapped in a {@link
+   * SingleFlightServiceEndpoint}, which already shares these fetches.
+   */
+  public ServiceEndpoint wrap(ServiceEndpoint endpoint, String vendorCode) {
+    return new CoalescingServiceEndpoint(endpoint, vendorCode);
+  }
+
+  public JsonObject getStatistics() {
+    return new JsonObject()
+        .put("settingRequests", settingRequests.get())
+        .put("fetches", fetches.get())
+        .put("coalesced", singleFlight.getStatistics().getLong("shared"));
+  }
+
+  private class CoalescingServiceEndpoint implements ServiceEndpoint {
+
+    private final ServiceEndpoint delegate;
+    private final String vendorCode;
+
+    CoalescingServiceEndpoint(ServiceEndpoint delegate, String vendorCode) {
+      this.delegate = Objects.requireNonNull(delegate);
+      this.vendorCode = vendorCode;
+    }
+
+    private <T> Future<T> fetch(
+        String method, String report, Object begin, Object end, Supplier<Future<T>> request) {
+      fetches.incrementAndGet();
+      String key =
+          String.join(
+              "|", method, vendorCode, report, String.valueOf(begin), String.valueOf(end));
+      return singleFlight.execute(key, request);
+    }
+
+    @Override
+    public boolean isValidReport(String report) {
+      return delegate.isValidReport(report);
+    }
+
+    @Override
+    public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
+      return fetch(
+          "single",
+          report,
+          beginDate,
+          endDate,
+          () -> delegate.fetchSingleReport(report, beginDate, endDate));
+    }
+
+    @Override
+    public Future<Report> fetchReport(String report, String beginDate, String endDate) {
+      return fetch(
+          "report",
+          report,
+          beginDate,
+          endDate,
+          () -> delegate.fetchReport(report, beginDate, endDate));
+    }
+
+    @Override
+    public boolean isRangeSupported() {
+      return delegate.isRangeSupported();
+    }
+
+    @Override
+    public Future<Map<YearMonth, Report>> fetchReportRange(
+        String report, YearMonth begin, YearMonth end) {
+      return fetch(
+          "range", report, begin, end, () -> delegate.fetchReportRange(report, begin, end));
+    }
+  }
+}
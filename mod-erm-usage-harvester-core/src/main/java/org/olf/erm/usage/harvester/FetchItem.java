@@ -6,6 +6,9 @@ public class FetchItem {
   String reportType;
   String begin;
   String end;
+  // id and failed attempts of the report already stored for this month, if any
+  String existingId;
+  Integer failedAttempts;
 
   public FetchItem(String reportType, String begin, String end) {
     super();
@@ -14,6 +17,13 @@ public class FetchItem {
     this.end = end;
   }
 
+  public FetchItem(
+      String reportType, String begin, String end, String existingId, Integer failedAttempts) {
+    this(reportType, begin, end);
+    this.existingId = existingId;
+    this.failedAttempts = failedAttempts;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -35,6 +45,14 @@ public class FetchItem {
 
   @Override
   public String toString() {
-    return "FetchItem [reportType=" + reportType + ", begin=" + begin + ", end=" + end + "]";
+    return "FetchItem [reportType="
+        + reportType
+        + ", begin="
+        + begin
+        + ", end="
+        + end
+        + ", existingId="
+        + existingId
+        + "]";
   }
 }
@@ -0,0 +1,239 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpointContext;
+
+/**
+ * Work queue limiting the number of concurrently running fetches globally, per tenant and per
+ * provider. Every provider has its own FIFO queue, tenants and providers with queued tasks and a
+ * free slot take turns, so a dispatch never has to look at tasks that cannot be started.
+ *
+ * <p>Limits are read from the {@code fetchScheduler} object of the module configuration:
+ *
+ * <ul>
+ *   <li>{@code maxConcurrent} - max number of fetches running at once (default: 20)
+ *   <li>{@code maxConcurrentPerTenant} - max number of fetches per tenant (default: 10)
+ *   <li>{@code maxConcurrentPerProvider} - max number of fetches per provider (default: 4)
+ * </ul>
+ */
+public class FetchScheduler {
+
+  private static final Map<Vertx, FetchScheduler> INSTANCES = new ConcurrentHashMap<>();
+
+  static final String CONFIG_KEY = "fetchScheduler";
+  static final int DEFAULT_MAX_CONCURRENT = 20;
+  static final int DEFAULT_MAX_CONCURRENT_PER_TENANT = 10;
+  static final int DEFAULT_MAX_CONCURRENT_PER_PROVIDER = 4;
+
+  private final int maxConcurrent;
+  private final int maxConcurrentPerTenant;
+  private final int maxConcurrentPerProvider;
+  private final Map<String, TenantQueue> tenants = new HashMap<>();
+  // tenants with a free slot and a provider that can start a task, in turn
+  private final Deque<TenantQueue> readyTenants = new ArrayDeque<>();
+  private int running = 0;
+  private int queued = 0;
+
+  FetchScheduler(int maxConcurrent, int maxConcurrentPerTenant, int maxConcurrentPerProvider) {
+    if (maxConcurrent < 1 || maxConcurrentPerTenant < 1 || maxConcurrentPerProvider < 1) {
+      throw new IllegalArgumentException("Concurrency limits must be greater than 0");
+    }
+    this.maxConcurrent = maxConcurrent;
+    this.maxConcurrentPerTenant = maxConcurrentPerTenant;
+    this.maxConcurrentPerProvider = maxConcurrentPerProvider;
+  }
+
+  /**
+   * Returns the scheduler shared by all verticles of the given {@link Vertx} instance, creating it
+   * with the given config if necessary. The scheduler is dropped when the context of the {@link
+   * ServiceEndpointContext} is closed.
+   */
+  public static FetchScheduler get(Vertx vertx, JsonObject config) {
+    return INSTANCES.computeIfAbsent(
+        vertx,
+        v -> {
+          JsonObject cfg =
+              config == null
+                  ? new JsonObject()
+                  : config.getJsonObject(CONFIG_KEY, new JsonObject());
+          FetchScheduler scheduler =
+              new FetchScheduler(
+                  cfg.getInteger("maxConcurrent", DEFAULT_MAX_CONCURRENT),
+                  cfg.getInteger("maxConcurrentPerTenant", DEFAULT_MAX_CONCURRENT_PER_TENANT),
+                  cfg.getInteger("maxConcurrentPerProvider", DEFAULT_MAX_CONCURRENT_PER_PROVIDER));
+          ServiceEndpointContext.get(v)
+              .getOwner()
+              .addCloseHook(
+                  completion -> {
+                    INSTANCES.remove(v, scheduler);
+                    completion.handle(Future.succeededFuture());
+                  });
+          return scheduler;
+        });
+  }
+
+  /**
+   * Queues a task. The task is started on the context of the caller once the limits allow it.
+   *
+   * @param tenantId tenant the task belongs to
+   * @param providerId provider the task belongs to
+   * @param task supplier starting the task
+   * @return future completing with the result of the task
+   */
+  public <T> Future<T> schedule(String tenantId, String providerId, Supplier<Future<T>> task) {
+    Promise<T> promise = Promise.promise();
+    synchronized (this) {
+      TenantQueue tenant = tenants.computeIfAbsent(tenantId, TenantQueue::new);
+      ProviderQueue provider =
+          tenant.providers.computeIfAbsent(providerId, id -> new ProviderQueue(tenant, id));
+      provider.tasks.add(new Task<>(provider, task, promise, Vertx.currentContext()));
+      queued++;
+      makeReady(provider);
+    }
+    dispatch();
+    return promise.future();
+  }
+
+  public synchronized JsonObject getStatistics() {
+    return new JsonObject()
+        .put("maxConcurrent", maxConcurrent)
+        .put("maxConcurrentPerTenant", maxConcurrentPerTenant)
+        .put("maxConcurrentPerProvider", maxConcurrentPerProvider)
+        .put("running", running)
+        .put("queued", queued);
+  }
+
+  /** Puts the provider and its tenant in turn, if they can start a task. Must hold the lock. */
+  private void makeReady(ProviderQueue provider) {
+    if (!provider.ready
+        && !provider.tasks.isEmpty()
+        && provider.running < maxConcurrentPerProvider) {
+      provider.ready = true;
+      provider.tenant.readyProviders.add(provider);
+    }
+    makeReady(provider.tenant);
+  }
+
+  /** Puts the tenant in turn, if one of its providers can start a task. Must hold the lock. */
+  private void makeReady(TenantQueue tenant) {
+    if (!tenant.ready
+        && !tenant.readyProviders.isEmpty()
+        && tenant.running < maxConcurrentPerTenant) {
+      tenant.ready = true;
+      readyTenants.add(tenant);
+    }
+  }
+
+  private void dispatch() {
+    List<Task<?>> startable = new ArrayList<>();
+    synchronized (this) {
+      while (running < maxConcurrent && !readyTenants.isEmpty()) {
+        TenantQueue tenant = readyTenants.poll();
+        tenant.ready = false;
+        ProviderQueue provider = tenant.readyProviders.poll();
+        provider.ready = false;
+        Task<?> task = provider.tasks.poll();
+        queued--;
+        running++;
+        tenant.running++;
+        provider.running++;
+        startable.add(task);
+        // both go to the back of their turn, if they can start another task
+        makeReady(provider);
+      }
+    }
+    startable.forEach(this::start);
+  }
+
+  private synchronized void release(Task<?> task) {
+    ProviderQueue provider = task.provider;
+    TenantQueue tenant = provider.tenant;
+    running--;
+    tenant.running--;
+    provider.running--;
+    makeReady(provider);
+    if (provider.running == 0 && provider.tasks.isEmpty()) {
+      tenant.providers.remove(provider.id);
+    }
+    if (tenant.running == 0 && tenant.providers.isEmpty()) {
+      tenants.remove(tenant.id);
+    }
+  }
+
+  private <T> void start(Task<T> task) {
+    Handler<Void> run =
+        v -> {
+          Future<T> future;
+          try {
+            future = task.supplier.get();
+          } catch (Exception e) {
+            future = Future.failedFuture(e);
+          }
+          future.setHandler(
+              ar -> {
+                release(task);
+                task.promise.handle(ar);
+                dispatch();
+              });
+        };
+    if (task.context == null) {
+      run.handle(null);
+    } else {
+      task.context.runOnContext(run);
+    }
+  }
+
+  private static class TenantQueue {
+    private final String id;
+    private final Map<String, ProviderQueue> providers = new HashMap<>();
+    // providers with queued tasks and a free slot, in turn
+    private final Deque<ProviderQueue> readyProviders = new ArrayDeque<>();
+    private int running = 0;
+    private boolean ready = false;
+
+    TenantQueue(String id) {
+      this.id = id;
+    }
+  }
+
+  private static class ProviderQueue {
+    private final TenantQueue tenant;
+    private final String id;
+    private final Deque<Task<?>> tasks = new ArrayDeque<>();
+    private int running = 0;
+    private boolean ready = false;
+
+    ProviderQueue(TenantQueue tenant, String id) {
+      this.tenant = tenant;
+      this.id = id;
+    }
+  }
+
+  private static class Task<T> {
+    private final ProviderQueue provider;
+    private final Supplier<Future<T>> supplier;
+    private final Promise<T> promise;
+    private final Context context;
+
+    Task(
+        ProviderQueue provider, Supplier<Future<T>> supplier, Promise<T> promise, Context context) {
+      this.provider = provider;
+      this.supplier = supplier;
+      this.promise = promise;
+      this.context = context;
+    }
+  }
+}
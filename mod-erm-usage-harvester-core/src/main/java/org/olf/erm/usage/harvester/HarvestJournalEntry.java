@@ -0,0 +1,130 @@
+package org.olf.erm.usage.harvester;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * A {@link FetchItem} planned for a provider, stored in the harvest journal until it has been
+ * processed. The entry belongs to the run that recorded or claimed it, which updates its heartbeat
+ * while it is running.
+ */
+public class HarvestJournalEntry {
+
+  private String id;
+  private String providerId;
+  private String reportType;
+  private String begin;
+  private String end;
+  private String existingId;
+  private Integer failedAttempts;
+  private Long created;
+  private String owner;
+  private Long heartbeat;
+
+  public HarvestJournalEntry() {}
+
+  public HarvestJournalEntry(String providerId, FetchItem item, long created, String owner) {
+    this.id = getId(providerId, item);
+    this.providerId = providerId;
+    this.reportType = item.reportType;
+    this.begin = item.begin;
+    this.end = item.end;
+    this.existingId = item.existingId;
+    this.failedAttempts = item.failedAttempts;
+    this.created = created;
+    this.owner = owner;
+    this.heartbeat = created;
+  }
+
+  /** Returns the id of the entry for the given item, the same for every run. */
+  public static String getId(String providerId, FetchItem item) {
+    return UUID.nameUUIDFromBytes(
+            String.join("|", providerId, item.reportType, item.begin, item.end)
+                .getBytes(StandardCharsets.UTF_8))
+        .toString();
+  }
+
+  public FetchItem toFetchItem() {
+    return new FetchItem(reportType, begin, end, existingId, failedAttempts);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getProviderId() {
+    return providerId;
+  }
+
+  public void setProviderId(String providerId) {
+    this.providerId = providerId;
+  }
+
+  public String getReportType() {
+    return reportType;
+  }
+
+  public void setReportType(String reportType) {
+    this.reportType = reportType;
+  }
+
+  public String getBegin() {
+    return begin;
+  }
+
+  public void setBegin(String begin) {
+    this.begin = begin;
+  }
+
+  public String getEnd() {
+    return end;
+  }
+
+  public void setEnd(String end) {
+    this.end = end;
+  }
+
+  public String getExistingId() {
+    return existingId;
+  }
+
+  public void setExistingId(String existingId) {
+    this.existingId = existingId;
+  }
+
+  public Integer getFailedAttempts() {
+    return failedAttempts;
+  }
+
+  public void setFailedAttempts(Integer failedAttempts) {
+    this.failedAttempts = failedAttempts;
+  }
+
+  public Long getCreated() {
+    return created;
+  }
+
+  public void setCreated(Long created) {
+    this.created = created;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  public void setOwner(String owner) {
+    this.owner = owner;
+  }
+
+  public Long getHeartbeat() {
+    return heartbeat;
+  }
+
+  public void setHeartbeat(Long heartbeat) {
+    this.heartbeat = heartbeat;
+  }
+}
@@ -0,0 +1,198 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.UpdateResult;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.folio.rest.persist.PostgresClient;
+
+/**
+ * Stores the fetch list of every provider in the {@code journal} table while a harvesting run
+ * processes it. Items are removed once they have been processed, so a run interrupted by a crash
+ * or redeploy leaves the unprocessed items behind for the next run to resume.
+ *
+ * <p>Every item belongs to the run that recorded it, which updates the heartbeat of its items
+ * while it is running. Only items whose heartbeat is stale are resumed, a run claims them with a
+ * single update, so an item is never processed by two runs at once.
+ *
+ * <p>Options are read from the {@code journal} object of the module configuration:
+ *
+ * <ul>
+ *   <li>{@code enabled} - whether runs are recorded (default: true)
+ *   <li>{@code maxAgeHours} - items recorded longer ago are not resumed (default: 72)
+ *   <li>{@code heartbeatSeconds} - interval of heartbeat updates (default: 60)
+ *   <li>{@code staleSeconds} - items without heartbeat for longer are resumed (default: 300)
+ * </ul>
+ */
+public class HarvestJournalPgUtil {
+
+  private static final String TBL = "journal";
+  private static final String CONFIG_KEY = "journal";
+  private static final long DEFAULT_MAX_AGE_HOURS = 72;
+  private static final long DEFAULT_HEARTBEAT_SECONDS = 60;
+  private static final long DEFAULT_STALE_SECONDS = 300;
+
+  public static boolean isEnabled(JsonObject moduleConfig) {
+    return moduleConfig.getJsonObject(CONFIG_KEY, new JsonObject()).getBoolean("enabled", true);
+  }
+
+  public static long getMaxAgeMillis(JsonObject moduleConfig) {
+    return TimeUnit.HOURS.toMillis(
+        moduleConfig
+            .getJsonObject(CONFIG_KEY, new JsonObject())
+            .getLong("maxAgeHours", DEFAULT_MAX_AGE_HOURS));
+  }
+
+  public static long getHeartbeatMillis(JsonObject moduleConfig) {
+    return TimeUnit.SECONDS.toMillis(
+        moduleConfig
+            .getJsonObject(CONFIG_KEY, new JsonObject())
+            .getLong("heartbeatSeconds", DEFAULT_HEARTBEAT_SECONDS));
+  }
+
+  public static long getStaleMillis(JsonObject moduleConfig) {
+    return TimeUnit.SECONDS.toMillis(
+        moduleConfig
+            .getJsonObject(CONFIG_KEY, new JsonObject())
+            .getLong("staleSeconds", DEFAULT_STALE_SECONDS));
+  }
+
+  /**
+   * Claims the unprocessed items of the given provider whose heartbeat is older than the given
+   * time, with a single update. Items of running runs are left alone.
+   *
+   * @param owner id of the claiming run
+   * @param now heartbeat of the claimed items
+   * @param staleBefore items with an older heartbeat are claimed
+   * @return the claimed items
+   */
+  public static Future<List<HarvestJournalEntry>> claim(
+      Vertx vertx, String tenantId, String providerId, String owner, long now, long staleBefore) {
+    String sql =
+        String.format(
+            "UPDATE %s.%s SET jsonb = jsonb || jsonb_build_object('owner', ?::text, 'heartbeat',"
+                + " ?::bigint) WHERE jsonb->>'providerId' = ?::text"
+                + " AND COALESCE((jsonb->>'heartbeat')::bigint, 0) < ?::bigint RETURNING jsonb",
+            PostgresClient.convertToPsqlStandard(tenantId),
+            TBL);
+    JsonArray params = new JsonArray().add(owner).add(now).add(providerId).add(staleBefore);
+    Promise<ResultSet> promise = Promise.promise();
+    PostgresClient.getInstance(vertx, tenantId).select(sql, params, promise);
+    return promise
+        .future()
+        .map(
+            rs ->
+                rs.getRows().stream()
+                    .map(row -> toJson(row.getValue("jsonb")).mapTo(HarvestJournalEntry.class))
+                    .collect(Collectors.toList()));
+  }
+
+  /**
+   * Records the fetch list of a provider. Items already recorded by another run are skipped, so
+   * they are not processed twice.
+   *
+   * @param owner id of the recording run
+   * @return the recorded items
+   */
+  public static Future<List<FetchItem>> save(
+      Vertx vertx,
+      String tenantId,
+      String providerId,
+      List<FetchItem> items,
+      long created,
+      String owner) {
+    if (items.isEmpty()) {
+      return Future.succeededFuture(items);
+    }
+    JsonArray params = new JsonArray();
+    for (FetchItem item : items) {
+      HarvestJournalEntry entry = new HarvestJournalEntry(providerId, item, created, owner);
+      params.add(entry.getId()).add(JsonObject.mapFrom(entry).encode());
+    }
+    String sql =
+        String.format(
+            "INSERT INTO %s.%s (id, jsonb) VALUES %s ON CONFLICT (id) DO NOTHING RETURNING id",
+            PostgresClient.convertToPsqlStandard(tenantId),
+            TBL,
+            String.join(",", Collections.nCopies(items.size(), "(?::uuid, ?::jsonb)")));
+    Promise<ResultSet> promise = Promise.promise();
+    PostgresClient.getInstance(vertx, tenantId).select(sql, params, promise);
+    return promise
+        .future()
+        .map(
+            rs -> {
+              Set<String> ids =
+                  rs.getResults().stream()
+                      .map(row -> row.getValue(0).toString())
+                      .collect(Collectors.toSet());
+              return items.stream()
+                  .filter(item -> ids.contains(HarvestJournalEntry.getId(providerId, item)))
+                  .collect(Collectors.toList());
+            });
+  }
+
+  /** Updates the heartbeat of all items of the given run. */
+  public static Future<Void> heartbeat(Vertx vertx, String tenantId, String owner, long now) {
+    String sql =
+        String.format(
+            "UPDATE %s.%s SET jsonb = jsonb || jsonb_build_object('heartbeat', ?::bigint)"
+                + " WHERE jsonb->>'owner' = ?::text",
+            PostgresClient.convertToPsqlStandard(tenantId),
+            TBL);
+    Promise<UpdateResult> promise = Promise.promise();
+    PostgresClient.getInstance(vertx, tenantId)
+        .execute(sql, new JsonArray().add(now).add(owner), promise);
+    return promise.future().mapEmpty();
+  }
+
+  /** Removes processed items of a provider with a single statement. */
+  public static Future<Void> delete(
+      Vertx vertx, String tenantId, String providerId, List<FetchItem> items) {
+    if (items.isEmpty()) {
+      return Future.succeededFuture();
+    }
+    // ids are UUIDs generated by getId, so they can be part of the statement
+    String ids =
+        items.stream()
+            .map(item -> "'" + HarvestJournalEntry.getId(providerId, item) + "'")
+            .collect(Collectors.joining(","));
+    String sql =
+        String.format(
+            "DELETE FROM %s.%s WHERE id IN (%s)",
+            PostgresClient.convertToPsqlStandard(tenantId), TBL, ids);
+    Promise<UpdateResult> promise = Promise.promise();
+    PostgresClient.getInstance(vertx, tenantId).execute(sql, promise);
+    return promise.future().mapEmpty();
+  }
+
+  /**
+   * Returns whether there are unprocessed items recorded at or after the given time, whose
+   * heartbeat is older than the given time.
+   */
+  public static Future<Boolean> hasEntries(
+      Vertx vertx, String tenantId, long createdSince, long staleBefore) {
+    String sql =
+        String.format(
+            "SELECT EXISTS (SELECT 1 FROM %s.%s WHERE (jsonb->>'created')::bigint >= %d"
+                + " AND COALESCE((jsonb->>'heartbeat')::bigint, 0) < %d)",
+            PostgresClient.convertToPsqlStandard(tenantId), TBL, createdSince, staleBefore);
+    Promise<ResultSet> promise = Promise.promise();
+    PostgresClient.getInstance(vertx, tenantId).select(sql, promise);
+    return promise.future().map(rs -> rs.getResults().get(0).getBoolean(0));
+  }
+
+  /** jsonb columns are returned as String or as JsonObject, depending on the driver. */
+  private static JsonObject toJson(Object jsonb) {
+    return jsonb instanceof JsonObject ? (JsonObject) jsonb : new JsonObject(jsonb.toString());
+  }
+
+  private HarvestJournalPgUtil() {}
+}
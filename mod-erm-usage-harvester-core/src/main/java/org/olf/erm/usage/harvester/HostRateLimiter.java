@@ -0,0 +1,282 @@
+package org.olf.erm.usage.harvester;
+
+import com.google.common.base.Strings;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpointContext;
+
+/**
+ * Limits requests to a host across all tenants and providers. Every host gets a token bucket
+ * limiting the request rate and a limit for concurrently running requests.
+ *
+ * <p>Limits are read from the {@code hostLimits} object of the module configuration. {@code
+ * default} applies to all hosts not listed in {@code hosts}:
+ *
+ * <pre>
+ * "hostLimits": {
+ *   "default": { "maxConcurrent": 4, "requestsPerSecond": 2.0, "burst": 4 },
+ *   "hosts": { "sushi.example.com": { "maxConcurrent": 1, "requestsPerSecond": 0.5 } }
+ * }
+ * </pre>
+ *
+ * A {@code requestsPerSecond} value of 0 disables rate limiting for a host.
+ */
+public class HostRateLimiter {
+
+  private static final Map<Vertx, HostRateLimiter> INSTANCES = new ConcurrentHashMap<>();
+
+  static final String CONFIG_KEY = "hostLimits";
+  static final int DEFAULT_MAX_CONCURRENT = 4;
+  static final double DEFAULT_REQUESTS_PER_SECOND = 2.0;
+
+  private final Context owner;
+  private final Vertx vertx;
+  private final JsonObject defaultLimits;
+  private final JsonObject hostLimits;
+  private final Map<String, HostState> hosts = new HashMap<>();
+
+  /**
+   * @param owner context the refill timers are set on, must live as long as the limiter
+   * @param config limits, see class description
+   */
+  HostRateLimiter(Context owner, JsonObject config) {
+    JsonObject cfg = config == null ? new JsonObject() : config;
+    this.owner = Objects.requireNonNull(owner);
+    this.vertx = owner.owner();
+    this.defaultLimits = cfg.getJsonObject("default", new JsonObject());
+    this.hostLimits = cfg.getJsonObject("hosts", new JsonObject());
+  }
+
+  /**
+   * Returns the limiter shared by all verticles of the given {@link Vertx} instance, creating it
+   * with the given config if necessary. The limiter lives on the context of the {@link
+   * ServiceEndpointContext}, not on the context of a verticle using it.
+   */
+  public static HostRateLimiter get(Vertx vertx, JsonObject config) {
+    return INSTANCES.computeIfAbsent(
+        vertx,
+        v -> {
+          Context owner = ServiceEndpointContext.get(v).getOwner();
+          HostRateLimiter limiter =
+              new HostRateLimiter(
+                  owner,
+                  config == null ? null : config.getJsonObject(CONFIG_KEY, new JsonObject()));
+          owner.addCloseHook(
+              completion -> {
+                INSTANCES.remove(v, limiter);
+                completion.handle(Future.succeededFuture());
+              });
+          return limiter;
+        });
+  }
+
+  /** Returns the host of the given URL, or the URL itself if it cannot be parsed. */
+  public static String getHost(String url) {
+    if (Strings.isNullOrEmpty(url)) {
+      return "";
+    }
+    try {
+      String host = new URI(url.trim()).getHost();
+      return host == null ? url : host.toLowerCase();
+    } catch (Exception e) {
+      return url;
+    }
+  }
+
+  /**
+   * Runs the task as soon as the limits for the given host allow it. The task is started on the
+   * context of the caller.
+   *
+   * @param host host the task sends requests to
+   * @param task supplier starting the task
+   * @return future completing with the result of the task
+   */
+  public <T> Future<T> execute(String host, Supplier<Future<T>> task) {
+    Promise<T> promise = Promise.promise();
+    Context context = Vertx.currentContext();
+    HostState state;
+    synchronized (this) {
+      state = hosts.computeIfAbsent(host, this::createHostState);
+      state.waiting.add(
+          new Waiter(
+              System.nanoTime(),
+              v -> {
+                Future<T> future;
+                try {
+                  future = task.get();
+                } catch (Exception e) {
+                  future = Future.failedFuture(e);
+                }
+                future.setHandler(
+                    ar -> {
+                      release(state);
+                      promise.handle(ar);
+                    });
+              },
+              context));
+    }
+    process(state);
+    return promise.future();
+  }
+
+  /** Returns limits and queue wait time metrics per host. */
+  public synchronized JsonObject getStatistics() {
+    JsonObject result = new JsonObject();
+    hosts.forEach(
+        (host, state) ->
+            result.put(
+                host,
+                new JsonObject()
+                    .put("maxConcurrent", state.maxConcurrent)
+                    .put("requestsPerSecond", state.requestsPerSecond)
+                    .put("running", state.running)
+                    .put("queued", state.waiting.size())
+                    .put("requests", state.requests)
+                    .put("waitTimeTotalMs", TimeUnit.NANOSECONDS.toMillis(state.waitNanosTotal))
+                    .put("waitTimeMaxMs", TimeUnit.NANOSECONDS.toMillis(state.waitNanosMax))));
+    return result;
+  }
+
+  private HostState createHostState(String host) {
+    JsonObject limits =
+        defaultLimits.copy().mergeIn(hostLimits.getJsonObject(host, new JsonObject()));
+    int maxConcurrent = limits.getInteger("maxConcurrent", DEFAULT_MAX_CONCURRENT);
+    double requestsPerSecond = limits.getDouble("requestsPerSecond", DEFAULT_REQUESTS_PER_SECOND);
+    int burst = limits.getInteger("burst", maxConcurrent);
+    return new HostState(Math.max(1, maxConcurrent), requestsPerSecond, Math.max(1, burst));
+  }
+
+  private void release(HostState state) {
+    synchronized (this) {
+      state.running--;
+    }
+    process(state);
+  }
+
+  private void process(HostState state) {
+    List<Waiter> granted = new ArrayList<>();
+    long delayMs = -1;
+    synchronized (this) {
+      long now = System.nanoTime();
+      state.refill(now);
+      while (!state.waiting.isEmpty()
+          && state.running < state.maxConcurrent
+          && state.hasToken()) {
+        Waiter waiter = state.waiting.poll();
+        state.takeToken();
+        state.running++;
+        state.requests++;
+        long waited = now - waiter.enqueuedAt;
+        state.waitNanosTotal += waited;
+        state.waitNanosMax = Math.max(state.waitNanosMax, waited);
+        granted.add(waiter);
+      }
+      if (!state.waiting.isEmpty()
+          && state.running < state.maxConcurrent
+          && !state.timerPending) {
+        state.timerPending = true;
+        delayMs = Math.max(1, state.millisUntilNextToken());
+      }
+    }
+
+    if (delayMs > 0) {
+      long delay = delayMs;
+      // timers are cancelled together with the verticle that set them, a verticle being undeployed
+      // must not leave the waiters of other verticles without timer
+      owner.runOnContext(
+          v ->
+              vertx.setTimer(
+                  delay,
+                  id -> {
+                    synchronized (this) {
+                      state.timerPending = false;
+                    }
+                    process(state);
+                  }));
+    }
+
+    granted.forEach(
+        w -> {
+          if (w.context == null) {
+            w.task.handle(null);
+          } else {
+            w.context.runOnContext(w.task);
+          }
+        });
+  }
+
+  private static class Waiter {
+    private final long enqueuedAt;
+    private final Handler<Void> task;
+    private final Context context;
+
+    Waiter(long enqueuedAt, Handler<Void> task, Context context) {
+      this.enqueuedAt = enqueuedAt;
+      this.task = task;
+      this.context = context;
+    }
+  }
+
+  private static class HostState {
+    private final int maxConcurrent;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+    private double tokens;
+    private long lastRefill;
+    private int running = 0;
+    private long requests = 0;
+    private long waitNanosTotal = 0;
+    private long waitNanosMax = 0;
+    private boolean timerPending = false;
+
+    HostState(int maxConcurrent, double requestsPerSecond, int burst) {
+      this.maxConcurrent = maxConcurrent;
+      this.requestsPerSecond = requestsPerSecond;
+      this.burst = burst;
+      this.tokens = burst;
+      this.lastRefill = System.nanoTime();
+    }
+
+    private boolean isRateLimited() {
+      return requestsPerSecond > 0;
+    }
+
+    private void refill(long now) {
+      if (isRateLimited()) {
+        double elapsedSeconds = (now - lastRefill) / 1_000_000_000d;
+        tokens = Math.min(burst, tokens + elapsedSeconds * requestsPerSecond);
+      }
+      lastRefill = now;
+    }
+
+    private boolean hasToken() {
+      return !isRateLimited() || tokens >= 1;
+    }
+
+    private void takeToken() {
+      if (isRateLimited()) {
+        tokens -= 1;
+      }
+    }
+
+    private long millisUntilNextToken() {
+      return (long) Math.ceil((1 - tokens) / requestsPerSecond * 1000);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package org.olf.erm.usage.harvester;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.Json;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class JsonUtil {
+
+  /**
+   * Serializes an object with Jackson straight into a {@link Buffer}, without building a JSON tree
+   * or an intermediate String/byte array.
+   *
+   * @param obj object to serialize
+   * @return Buffer holding the JSON representation
+   * @throws EncodeException if the object cannot be serialized
+   */
+  public static Buffer encodeToBuffer(Object obj) {
+    ByteBuf buf = Unpooled.buffer();
+    try (OutputStream out = new ByteBufOutputStream(buf)) {
+      Json.mapper.writeValue(out, obj);
+    } catch (IOException e) {
+      buf.release();
+      throw new EncodeException("Failed to encode as JSON: " + e.getMessage());
+    }
+    return Buffer.buffer(buf);
+  }
+
+  private JsonUtil() {}
+}
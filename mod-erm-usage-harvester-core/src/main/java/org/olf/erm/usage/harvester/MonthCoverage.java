@@ -0,0 +1,75 @@
+package org.olf.erm.usage.harvester;
+
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Tracks which months of a range are covered by existing reports. Every month is a bit in a {@link
+ * BitSet}, indexed by its offset to the start month.
+ */
+public class MonthCoverage {
+
+  private final YearMonth start;
+  private final int size;
+  private final BitSet covered;
+
+  /**
+   * @param start first month of the range
+   * @param end last month of the range (inclusive)
+   */
+  public MonthCoverage(YearMonth start, YearMonth end) {
+    this.start = Objects.requireNonNull(start);
+    this.size = Math.max(0, (int) ChronoUnit.MONTHS.between(start, end) + 1);
+    this.covered = new BitSet(size);
+  }
+
+  public YearMonth getStart() {
+    return start;
+  }
+
+  /** Returns the number of months in the range. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Marks a month as covered. Months outside of the range are ignored.
+   *
+   * @return {@code true} if the month is within the range
+   */
+  public boolean add(YearMonth month) {
+    int index = indexOf(month);
+    if (index < 0) {
+      return false;
+    }
+    covered.set(index);
+    return true;
+  }
+
+  /** Calls the consumer for every month that is not covered, in ascending order. */
+  public void forEachMissing(Consumer<YearMonth> consumer) {
+    for (int i = covered.nextClearBit(0); i < size; i = covered.nextClearBit(i + 1)) {
+      consumer.accept(start.plusMonths(i));
+    }
+  }
+
+  /** Returns the covered months in ascending order. */
+  public List<YearMonth> getCoveredMonths() {
+    List<YearMonth> result = new ArrayList<>(covered.cardinality());
+    covered.stream().forEach(i -> result.add(start.plusMonths(i)));
+    return result;
+  }
+
+  private int indexOf(YearMonth month) {
+    if (month == null) {
+      return -1;
+    }
+    long offset = ChronoUnit.MONTHS.between(start, month);
+    return offset < 0 || offset >= size ? -1 : (int) offset;
+  }
+}
@@ -23,26 +23,24 @@ public class OkapiClient {
 
   private final String okapiUrl;
   private final String tenantsPath;
-  private final Vertx vertx;
+  private final WebClient client;
 
   public OkapiClient(Vertx vertx, JsonObject cfg) {
     Objects.requireNonNull(vertx);
     Objects.requireNonNull(cfg);
     this.okapiUrl = cfg.getString("okapiUrl");
     this.tenantsPath = cfg.getString("tenantsPath");
-    this.vertx = vertx;
+    this.client = SharedWebClient.get(vertx);
   }
 
   public Future<List<String>> getTenants() {
     Promise<List<String>> promise = Promise.promise();
 
     final String url = okapiUrl + tenantsPath;
-    WebClient client = WebClient.create(vertx);
     client
         .getAbs(url)
         .send(
             ar -> {
-              client.close();
               if (ar.succeeded()) {
                 if (ar.result().statusCode() == 200) {
                   JsonArray jsonArray;
@@ -76,7 +74,6 @@ public class OkapiClient {
     final String interfacesUrl = okapiUrl + tenantsPath + "/" + tenantId + "/interfaces";
 
     Promise<Void> promise = Promise.promise();
-    WebClient client = WebClient.create(vertx);
     client
         .getAbs(interfacesUrl)
         .send(
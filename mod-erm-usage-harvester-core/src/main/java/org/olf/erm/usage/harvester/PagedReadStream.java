@@ -0,0 +1,150 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * {@link ReadStream} over a paged collection. Pages are requested one at a time and only when the
+ * previous page has been consumed, so at most one page is held in memory. A page with less than
+ * {@code pageSize} elements ends the stream.
+ *
+ * <p>All handlers are called on the given {@link Context}.
+ *
+ * @param <T> element type
+ */
+public class PagedReadStream<T> implements ReadStream<T> {
+
+  private final Context context;
+  private final int pageSize;
+  private final BiFunction<Integer, Integer, Future<List<T>>> pageFetcher;
+  private final Deque<T> buffer = new ArrayDeque<>();
+
+  private Handler<T> handler;
+  private Handler<Void> endHandler;
+  private Handler<Throwable> exceptionHandler;
+  private long demand = Long.MAX_VALUE;
+  private int offset = 0;
+  private boolean fetching = false;
+  private boolean lastPage = false;
+  private boolean ended = false;
+  private boolean emitting = false;
+
+  /**
+   * @param context context to call the handlers on
+   * @param pageSize number of elements to request per page
+   * @param pageFetcher function returning the page for the given offset and limit
+   */
+  public PagedReadStream(
+      Context context, int pageSize, BiFunction<Integer, Integer, Future<List<T>>> pageFetcher) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be greater than 0");
+    }
+    this.context = Objects.requireNonNull(context);
+    this.pageSize = pageSize;
+    this.pageFetcher = Objects.requireNonNull(pageFetcher);
+  }
+
+  @Override
+  public ReadStream<T> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> handler(Handler<T> handler) {
+    this.handler = handler;
+    if (handler != null) {
+      drain();
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> pause() {
+    demand = 0;
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> resume() {
+    return fetch(Long.MAX_VALUE);
+  }
+
+  @Override
+  public ReadStream<T> fetch(long amount) {
+    if (amount > 0) {
+      demand += amount;
+      if (demand < 0) {
+        demand = Long.MAX_VALUE;
+      }
+      drain();
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> endHandler(Handler<Void> endHandler) {
+    this.endHandler = endHandler;
+    return this;
+  }
+
+  private void drain() {
+    if (emitting || handler == null) {
+      return;
+    }
+
+    emitting = true;
+    try {
+      while (demand > 0 && !buffer.isEmpty() && handler != null) {
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+        handler.handle(buffer.poll());
+      }
+    } finally {
+      emitting = false;
+    }
+
+    if (buffer.isEmpty() && !fetching && !ended) {
+      if (lastPage) {
+        ended = true;
+        if (endHandler != null) {
+          endHandler.handle(null);
+        }
+      } else if (demand > 0) {
+        fetchPage();
+      }
+    }
+  }
+
+  private void fetchPage() {
+    fetching = true;
+    pageFetcher
+        .apply(offset, pageSize)
+        .setHandler(
+            ar ->
+                context.runOnContext(
+                    v -> {
+                      fetching = false;
+                      if (ar.failed()) {
+                        ended = true;
+                        if (exceptionHandler != null) {
+                          exceptionHandler.handle(ar.cause());
+                        }
+                        return;
+                      }
+                      List<T> page = ar.result();
+                      offset += page.size();
+                      lastPage = page.size() < pageSize;
+                      buffer.addAll(page);
+                      drain();
+                    }));
+  }
+}
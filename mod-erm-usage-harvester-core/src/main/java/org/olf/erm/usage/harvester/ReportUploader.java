@@ -0,0 +1,149 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import org.folio.rest.jaxrs.model.CounterReport;
+
+/**
+ * Uploads reports with at most {@code maxInFlight} requests running at once over the pooled Okapi
+ * client. Reports exceeding the limit wait in a queue until a request finishes.
+ *
+ * <p>The queue is bounded by its callers: {@link #upload(HttpMethod, CounterReport)} returns an
+ * {@link Upload} whose {@link Upload#getDispatched()} future completes once the request for the
+ * report has been started. A fetch keeps its {@link FetchScheduler} slot until then, so the queue
+ * never holds more reports than the fetches running at once have fetched.
+ *
+ * <p>Limits are read from the {@code reportUpload} object of the module configuration:
+ *
+ * <ul>
+ *   <li>{@code maxInFlight} - max number of uploads running at once (default: 10)
+ * </ul>
+ *
+ * <p>Not thread safe, all methods must be called on the context of the owning verticle.
+ */
+public class ReportUploader {
+
+  static final String CONFIG_KEY = "reportUpload";
+  static final int DEFAULT_MAX_IN_FLIGHT = 10;
+
+  /** Sends a single serialized report. */
+  @FunctionalInterface
+  public interface Sender {
+    Future<HttpResponse<Buffer>> send(HttpMethod method, String id, Buffer body);
+  }
+
+  private final Sender sender;
+  private final int maxInFlight;
+  private final Deque<Upload> queue = new ArrayDeque<>();
+
+  private int inFlight = 0;
+  private long succeeded = 0;
+  private long failed = 0;
+
+  public ReportUploader(JsonObject config, Sender sender) {
+    JsonObject cfg =
+        config == null ? new JsonObject() : config.getJsonObject(CONFIG_KEY, new JsonObject());
+    this.sender = Objects.requireNonNull(sender);
+    this.maxInFlight = Math.max(1, cfg.getInteger("maxInFlight", DEFAULT_MAX_IN_FLIGHT));
+  }
+
+  /**
+   * Queues a report for upload.
+   *
+   * @param method {@link HttpMethod#POST} for new reports, {@link HttpMethod#PUT} for existing ones
+   * @param report report to upload
+   * @return the pending upload of the report
+   */
+  public Upload upload(HttpMethod method, CounterReport report) {
+    Upload upload = new Upload(method, report);
+    queue.add(upload);
+    dispatch();
+    return upload;
+  }
+
+  public JsonObject getStatistics() {
+    return new JsonObject()
+        .put("maxInFlight", maxInFlight)
+        .put("inFlight", inFlight)
+        .put("queued", queue.size())
+        .put("succeeded", succeeded)
+        .put("failed", failed);
+  }
+
+  private void dispatch() {
+    while (inFlight < maxInFlight && !queue.isEmpty()) {
+      Upload upload = queue.poll();
+      inFlight++;
+      Future<HttpResponse<Buffer>> future = send(upload);
+      upload.dispatched.complete();
+      future.setHandler(
+          ar -> {
+            inFlight--;
+            if (ar.succeeded() && ar.result().statusCode() / 100 == 2) {
+              succeeded++;
+              upload.response.complete(ar.result());
+            } else {
+              failed++;
+              if (ar.succeeded()) {
+                upload.response.fail(
+                    String.format(
+                        "Report %s not uploaded, received status code %s, %s",
+                        upload.id, ar.result().statusCode(), ar.result().bodyAsString()));
+              } else {
+                upload.response.fail(ar.cause());
+              }
+            }
+            dispatch();
+          });
+    }
+  }
+
+  private Future<HttpResponse<Buffer>> send(Upload upload) {
+    CounterReport report = upload.report;
+    // the request holds the serialized report, dont keep both until the response arrives
+    upload.report = null;
+    try {
+      return sender.send(upload.method, upload.id, JsonUtil.encodeToBuffer(report));
+    } catch (Exception e) {
+      return Future.failedFuture(e);
+    }
+  }
+
+  /** Pending upload of a report. */
+  public static class Upload {
+    private final HttpMethod method;
+    private final String id;
+    private CounterReport report;
+    private final Promise<Void> dispatched = Promise.promise();
+    private final Promise<HttpResponse<Buffer>> response = Promise.promise();
+
+    Upload(HttpMethod method, CounterReport report) {
+      this.method = method;
+      this.id = report.getId();
+      this.report = report;
+    }
+
+    /**
+     * Returns a future completing once the request for the report has been started. The future
+     * never fails.
+     */
+    public Future<Void> getDispatched() {
+      return dispatched.future();
+    }
+
+    /**
+     * Returns a future completing with the response for the report, failing if the report could
+     * not be serialized or sent, or if the response status is not 2xx.
+     */
+    public Future<HttpResponse<Buffer>> getResponse() {
+      return response.future();
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.impl.ConnectionBase;
+import java.io.EOFException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import org.olf.erm.usage.harvester.endpoints.SushiException;
+
+/**
+ * Decides which failed fetches are retried within a harvesting run, and when. Errors are
+ * classified into {@link ErrorType}s, transient ones are retried with exponential backoff and
+ * jitter until the max number of attempts of their type is reached. Fetches rejected by a saturated
+ * local {@link java.util.concurrent.ExecutorService} do not count as an attempt, as the service has
+ * not been asked. Their rejections are counted separately and limited by the {@code maxAttempts}
+ * of {@code rejected}.
+ *
+ * <p>Options are read from the {@code retry} object of the module configuration:
+ *
+ * <ul>
+ *   <li>{@code enabled} - whether failed fetches are retried (default: true)
+ *   <li>{@code connection}, {@code serverError}, {@code serviceBusy} - options of an error type,
+ *       each an object with {@code maxAttempts}, {@code initialDelayMs} and {@code maxDelayMs}
+ *   <li>{@code rejected} - options of rejected fetches, {@code maxAttempts} limits the number of
+ *       rejections, every retry waits {@code initialDelayMs}
+ * </ul>
+ */
+public class RetryPolicy {
+
+  static final String CONFIG_KEY = "retry";
+
+  /** Type of a failed fetch. */
+  public enum ErrorType {
+    /** Connection refused, reset, closed or timed out. */
+    CONNECTION("connection", 3, 5000, 60000),
+    /** HTTP 500, 502, 503 or 504 response. */
+    SERVER_ERROR("serverError", 3, 10000, 120000),
+    /** Service busy, not available or report queued (COUNTER 1000, 1010, 1011), HTTP 429. */
+    SERVICE_BUSY("serviceBusy", 5, 60000, 600000),
+    /** Rejected by a saturated local executor, the request has not been sent. */
+    REJECTED("rejected", 60, 5000, 60000),
+    /** Any other error, not retried. */
+    PERMANENT("permanent", 1, 0, 0);
+
+    private final String configKey;
+    private final int defaultMaxAttempts;
+    private final long defaultInitialDelay;
+    private final long defaultMaxDelay;
+
+    ErrorType(
+        String configKey, int defaultMaxAttempts, long defaultInitialDelay, long defaultMaxDelay) {
+      this.configKey = configKey;
+      this.defaultMaxAttempts = defaultMaxAttempts;
+      this.defaultInitialDelay = defaultInitialDelay;
+      this.defaultMaxDelay = defaultMaxDelay;
+    }
+  }
+
+  // COUNTER exceptions: service not available, service busy, report queued for processing
+  private static final List<Integer> SERVICE_BUSY_CODES = Arrays.asList(1000, 1010, 1011);
+  private static final List<Integer> SERVER_ERROR_STATUS = Arrays.asList(500, 502, 503, 504);
+
+  private final boolean enabled;
+  private final Map<ErrorType, Options> options = new EnumMap<>(ErrorType.class);
+  private final Map<ErrorType, AtomicLong> retried = new EnumMap<>(ErrorType.class);
+  private final Map<ErrorType, AtomicLong> exhausted = new EnumMap<>(ErrorType.class);
+
+  public RetryPolicy(JsonObject config) {
+    JsonObject cfg =
+        config == null ? new JsonObject() : config.getJsonObject(CONFIG_KEY, new JsonObject());
+    this.enabled = cfg.getBoolean("enabled", true);
+    for (ErrorType type : ErrorType.values()) {
+      JsonObject typeCfg = cfg.getJsonObject(type.configKey, new JsonObject());
+      options.put(
+          type,
+          new Options(
+              type == ErrorType.PERMANENT
+                  ? 1
+                  : Math.max(1, typeCfg.getInteger("maxAttempts", type.defaultMaxAttempts)),
+              Math.max(1, typeCfg.getLong("initialDelayMs", type.defaultInitialDelay)),
+              Math.max(1, typeCfg.getLong("maxDelayMs", type.defaultMaxDelay))));
+      retried.put(type, new AtomicLong());
+      exhausted.put(type, new AtomicLong());
+    }
+  }
+
+  /**
+   * Classifies the cause of a failed fetch by the types in its cause chain. HTTP status codes and
+   * COUNTER exceptions are taken from a {@link SushiException}, messages are not looked at. Failed
+   * TLS handshakes and untrusted certificates are permanent, even if caused by a connection error.
+   */
+  public static ErrorType classify(Throwable t) {
+    for (Throwable c = t; c != null; c = c.getCause()) {
+      if (isTlsError(c)) {
+        return ErrorType.PERMANENT;
+      }
+    }
+    for (Throwable c = t; c != null; c = c.getCause()) {
+      if (c instanceof RejectedExecutionException) {
+        return ErrorType.REJECTED;
+      }
+      if (isConnectionError(c)) {
+        return ErrorType.CONNECTION;
+      }
+    }
+    for (Throwable c = t; c != null; c = c.getCause()) {
+      if (c instanceof SushiException) {
+        SushiException e = (SushiException) c;
+        if (e.getStatusCode() == 429
+            || e.getExceptionCodes().stream().anyMatch(SERVICE_BUSY_CODES::contains)) {
+          return ErrorType.SERVICE_BUSY;
+        }
+        return SERVER_ERROR_STATUS.contains(e.getStatusCode())
+            ? ErrorType.SERVER_ERROR
+            : ErrorType.PERMANENT;
+      }
+    }
+    return ErrorType.PERMANENT;
+  }
+
+  private static boolean isTlsError(Throwable t) {
+    return t instanceof SSLHandshakeException
+        || t instanceof SSLPeerUnverifiedException
+        || t instanceof CertificateException;
+  }
+
+  /**
+   * Refused, reset or unreachable connections ({@link SocketException}), socket and call timeouts
+   * ({@link InterruptedIOException}, {@link TimeoutException}), responses cut off by the peer
+   * ({@link EOFException}) and connections closed while a Vert.x request was running. Unknown
+   * hosts and malformed responses are not connection errors.
+   */
+  private static boolean isConnectionError(Throwable t) {
+    return t instanceof SocketException
+        || t instanceof InterruptedIOException
+        || t instanceof TimeoutException
+        || t instanceof EOFException
+        || t == ConnectionBase.CLOSED_EXCEPTION;
+  }
+
+  /**
+   * Returns whether a fetch that failed with the given error type is retried.
+   *
+   * @param type type of the error
+   * @param attempt number of the failed attempt, starting with 1, or the number of rejections for
+   *     {@link ErrorType#REJECTED}
+   */
+  public boolean shouldRetry(ErrorType type, int attempt) {
+    boolean retry = enabled && type != ErrorType.PERMANENT && attempt < getMaxAttempts(type);
+    if (retry) {
+      retried.get(type).incrementAndGet();
+    } else if (type != ErrorType.PERMANENT && attempt > 1) {
+      exhausted.get(type).incrementAndGet();
+    }
+    return retry;
+  }
+
+  public int getMaxAttempts(ErrorType type) {
+    return options.get(type).maxAttempts;
+  }
+
+  /**
+   * Returns the delay before the next attempt: the initial delay of the error type, doubled for
+   * every further attempt and capped at the max delay. Rejected fetches always wait the initial
+   * delay. A random jitter of up to half the delay keeps retries of many items from arriving at
+   * the same time.
+   *
+   * @param type type of the error
+   * @param attempt number of the failed attempt, starting with 1
+   */
+  public long getDelay(ErrorType type, int attempt) {
+    Options o = options.get(type);
+    long delay = o.initialDelay;
+    int doublings = type == ErrorType.REJECTED ? 0 : attempt - 1;
+    for (int i = 0; i < doublings && delay < o.maxDelay; i++) {
+      delay *= 2;
+    }
+    delay = Math.min(delay, o.maxDelay);
+    long half = delay / 2;
+    return delay - half + ThreadLocalRandom.current().nextLong(half + 1);
+  }
+
+  public JsonObject getStatistics() {
+    JsonObject stats = new JsonObject().put("enabled", enabled);
+    for (ErrorType type : ErrorType.values()) {
+      if (type != ErrorType.PERMANENT) {
+        stats.put(
+            type.configKey,
+            new JsonObject()
+                .put("retried", retried.get(type).get())
+                .put("exhausted", exhausted.get(type).get()));
+      }
+    }
+    return stats;
+  }
+
+  private static class Options {
+    private final int maxAttempts;
+    private final long initialDelay;
+    private final long maxDelay;
+
+    Options(int maxAttempts, long initialDelay, long maxDelay) {
+      this.maxAttempts = maxAttempts;
+      this.initialDelay = initialDelay;
+      this.maxDelay = maxDelay;
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package org.olf.erm.usage.harvester;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.folio.rest.jaxrs.model.AggregatorSetting;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+
+/**
+ * LRU cache of {@link ServiceEndpoint} instances, so their HTTP clients and SOAP ports are reused
+ * across harvesting runs. Endpoints are keyed by provider id and a hash of the harvesting config,
+ * the SUSHI credentials and the aggregator setting, so any change to these creates a new endpoint.
+ * One instance is shared by all verticles of a {@link Vertx} instance.
+ *
+ * <p>Options are read from the {@code endpointCache} object of the module configuration:
+ *
+ * <ul>
+ *   <li>{@code maxSize} - max number of cached endpoints, {@code 0} disables caching (default:
+ *       100)
+ * </ul>
+ */
+public class ServiceEndpointCache {
+
+  private static final Map<Vertx, ServiceEndpointCache> INSTANCES = new ConcurrentHashMap<>();
+
+  static final String CONFIG_KEY = "endpointCache";
+  static final int DEFAULT_MAX_SIZE = 100;
+
+  private final int maxSize;
+  private final Map<String, ServiceEndpoint> cache;
+  private long hits = 0;
+  private long misses = 0;
+
+  ServiceEndpointCache(int maxSize) {
+    this.maxSize = Math.max(0, maxSize);
+    this.cache =
+        new LinkedHashMap<String, ServiceEndpoint>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, ServiceEndpoint> eldest) {
+            return size() > ServiceEndpointCache.this.maxSize;
+          }
+        };
+  }
+
+  /**
+   * Returns the cache shared by all verticles of the given {@link Vertx} instance, creating it with
+   * the given config if necessary.
+   */
+  public static ServiceEndpointCache get(Vertx vertx, JsonObject config) {
+    return INSTANCES.computeIfAbsent(
+        vertx,
+        v -> {
+          JsonObject cfg =
+              config == null
+                  ? new JsonObject()
+                  : config.getJsonObject(CONFIG_KEY, new JsonObject());
+          return new ServiceEndpointCache(cfg.getInteger("maxSize", DEFAULT_MAX_SIZE));
+        });
+  }
+
+  /**
+   * Returns the cached endpoint for the given provider and aggregator setting, or creates and
+   * caches a new one. Endpoints that could not be created ({@code null}) are not cached.
+   */
+  public ServiceEndpoint get(
+      UsageDataProvider provider, AggregatorSetting aggregator, Supplier<ServiceEndpoint> factory) {
+    if (maxSize == 0) {
+      return factory.get();
+    }
+
+    String key = getKey(provider, aggregator);
+    synchronized (this) {
+      ServiceEndpoint sep = cache.get(key);
+      if (sep != null) {
+        hits++;
+        return sep;
+      }
+      misses++;
+    }
+
+    ServiceEndpoint sep = factory.get();
+    if (sep != null) {
+      synchronized (this) {
+        ServiceEndpoint existing = cache.putIfAbsent(key, sep);
+        if (existing != null) {
+          return existing;
+        }
+      }
+    }
+    return sep;
+  }
+
+  public synchronized JsonObject getStatistics() {
+    return new JsonObject()
+        .put("maxSize", maxSize)
+        .put("size", cache.size())
+        .put("hits", hits)
+        .put("misses", misses);
+  }
+
+  static String getKey(UsageDataProvider provider, AggregatorSetting aggregator) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(Json.encode(provider.getHarvestingConfig()), StandardCharsets.UTF_8);
+    hasher.putString(Json.encode(provider.getSushiCredentials()), StandardCharsets.UTF_8);
+    hasher.putString(Json.encode(aggregator), StandardCharsets.UTF_8);
+    return provider.getId() + ":" + hasher.hash();
+  }
+}
@@ -0,0 +1,127 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keep-alive {@link WebClient} used for all calls to Okapi. One instance is created per {@link
+ * Vertx} instance on a context living as long as the module, and shared by all verticles.
+ *
+ * <p>Options are read from the {@code okapiClient} object of the module configuration:
+ *
+ * <ul>
+ *   <li>{@code maxPoolSize} - max number of connections per host (default: 20)
+ *   <li>{@code pipelining} - enable HTTP pipelining (default: false)
+ *   <li>{@code pipeliningLimit} - max number of pipelined requests per connection (default: 10)
+ *   <li>{@code idleTimeout} - seconds after which an idle connection is closed (default: 60)
+ * </ul>
+ */
+public class SharedWebClient {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SharedWebClient.class);
+  private static final Map<Vertx, SharedWebClient> INSTANCES = new ConcurrentHashMap<>();
+
+  static final String CONFIG_KEY = "okapiClient";
+  static final int DEFAULT_MAX_POOL_SIZE = 20;
+  static final int DEFAULT_PIPELINING_LIMIT = 10;
+  static final int DEFAULT_IDLE_TIMEOUT = 60;
+
+  private final WebClient webClient;
+  private final WebClientOptions options;
+  private final AtomicInteger openConnections = new AtomicInteger();
+  private final AtomicLong totalConnections = new AtomicLong();
+
+  private SharedWebClient(Vertx vertx, JsonObject config) {
+    JsonObject cfg =
+        config == null ? new JsonObject() : config.getJsonObject(CONFIG_KEY, new JsonObject());
+    options = new WebClientOptions();
+    options.setKeepAlive(true);
+    options.setMaxPoolSize(cfg.getInteger("maxPoolSize", DEFAULT_MAX_POOL_SIZE));
+    options.setPipelining(cfg.getBoolean("pipelining", false));
+    options.setPipeliningLimit(cfg.getInteger("pipeliningLimit", DEFAULT_PIPELINING_LIMIT));
+    options.setIdleTimeout(cfg.getInteger("idleTimeout", DEFAULT_IDLE_TIMEOUT));
+
+    HttpClient httpClient = vertx.createHttpClient(options);
+    httpClient.connectionHandler(
+        conn -> {
+          openConnections.incrementAndGet();
+          totalConnections.incrementAndGet();
+          conn.closeHandler(v -> openConnections.decrementAndGet());
+        });
+    webClient = WebClient.wrap(httpClient);
+  }
+
+  /**
+   * Creates the shared client for the given {@link Vertx} instance, does nothing if it already
+   * exists. The client is closed together with the given Vert.x context, so it must live as long as
+   * the module, e.g. the context of the module's {@code RestVerticle}.
+   *
+   * @param vertx the Vert.x instance
+   * @param owner a Vert.x context living as long as the module, must be the current context if the
+   *     caller runs on one
+   * @param config module configuration, see class description
+   * @return the shared client
+   * @throws IllegalStateException if called on another Vert.x context than {@code owner}
+   */
+  public static WebClient init(Vertx vertx, Context owner, JsonObject config) {
+    return INSTANCES.computeIfAbsent(vertx, v -> create(v, owner, config)).webClient;
+  }
+
+  /**
+   * Returns the shared client for the given {@link Vertx} instance.
+   *
+   * @throws IllegalStateException if the client was not created with {@link #init(Vertx, Context,
+   *     JsonObject)}
+   */
+  public static WebClient get(Vertx vertx) {
+    SharedWebClient instance = INSTANCES.get(vertx);
+    if (instance == null) {
+      throw new IllegalStateException("SharedWebClient not initialized");
+    }
+    return instance.webClient;
+  }
+
+  /** Returns connection pool statistics of the shared client or an empty object if none exists. */
+  public static JsonObject getStatistics(Vertx vertx) {
+    SharedWebClient instance = INSTANCES.get(vertx);
+    return instance == null ? new JsonObject() : instance.getStatistics();
+  }
+
+  private static SharedWebClient create(Vertx vertx, Context owner, JsonObject config) {
+    Objects.requireNonNull(owner);
+    // a HttpClient belongs to the context it is created on
+    Context current = Vertx.currentContext();
+    if (current != null && current != owner) {
+      throw new IllegalStateException("SharedWebClient must be created on its owner context");
+    }
+    SharedWebClient instance = new SharedWebClient(vertx, config);
+    owner.addCloseHook(
+        completion -> {
+          INSTANCES.remove(vertx, instance);
+          completion.handle(Future.succeededFuture());
+        });
+    LOG.info("Created shared Okapi client: {}", instance.getStatistics());
+    return instance;
+  }
+
+  private JsonObject getStatistics() {
+    return new JsonObject()
+        .put("maxPoolSize", options.getMaxPoolSize())
+        .put("pipelining", options.isPipelining())
+        .put("idleTimeout", options.getIdleTimeout())
+        .put("openConnections", openConnections.get())
+        .put("totalConnections", totalConnections.get());
+  }
+}
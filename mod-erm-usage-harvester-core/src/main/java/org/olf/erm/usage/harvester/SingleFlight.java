@@ -0,0 +1,101 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shares a running request with all identical requests started before it completes. Every caller
+ * gets a future of its own, completed on the caller's context. Results are handed to all callers,
+ * so they must not be modified. Completed requests are not cached.
+ *
+ * <p>{@link #getShared()} returns the instance shared by the whole JVM, which deduplicates
+ * identical SUSHI fetches of different tenants.
+ */
+public class SingleFlight {
+
+  private static final SingleFlight SHARED = new SingleFlight();
+
+  private final Map<String, List<Waiter>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong shared = new AtomicLong();
+
+  public static SingleFlight getShared() {
+    return SHARED;
+  }
+
+  /**
+   * Starts the given request unless a request with the same key is in flight, in which case its
+   * result is shared.
+   *
+   * @param key identifies the request
+   * @param request supplier starting the request
+   * @return future completing with the result of the request
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Future<T> execute(String key, Supplier<Future<T>> request) {
+    requests.incrementAndGet();
+    Waiter waiter = new Waiter(Vertx.currentContext());
+    AtomicBoolean first = new AtomicBoolean();
+    inFlight.compute(
+        key,
+        (k, waiting) -> {
+          List<Waiter> list = waiting == null ? new ArrayList<>() : waiting;
+          first.set(waiting == null);
+          list.add(waiter);
+          return list;
+        });
+    Future<T> result = (Future<T>) (Future<?>) waiter.promise.future();
+    if (!first.get()) {
+      shared.incrementAndGet();
+      return result;
+    }
+
+    Future<T> future;
+    try {
+      future = request.get();
+    } catch (RuntimeException e) {
+      future = Future.failedFuture(e);
+    }
+    future.setHandler(
+        ar -> {
+          AsyncResult<Object> asyncResult = (AsyncResult<Object>) (AsyncResult<?>) ar;
+          inFlight.remove(key).forEach(w -> w.complete(asyncResult));
+        });
+    return result;
+  }
+
+  public JsonObject getStatistics() {
+    return new JsonObject()
+        .put("requests", requests.get())
+        .put("shared", shared.get())
+        .put("inFlight", inFlight.size());
+  }
+
+  private static class Waiter {
+    private final Context context;
+    private final Promise<Object> promise = Promise.promise();
+
+    Waiter(Context context) {
+      this.context = context;
+    }
+
+    void complete(AsyncResult<Object> ar) {
+      if (context == null || context == Vertx.currentContext()) {
+        promise.handle(ar);
+      } else {
+        context.runOnContext(v -> promise.handle(ar));
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package org.olf.erm.usage.harvester;
+
+import com.google.common.hash.Hashing;
+import io.vertx.core.Future;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.folio.rest.jaxrs.model.AggregatorSetting;
+import org.folio.rest.jaxrs.model.HarvestingConfig;
+import org.folio.rest.jaxrs.model.Report;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+
+/**
+ * {@link ServiceEndpoint} that sends all fetches through a {@link SingleFlight}, so identical
+ * fetches of endpoints with the same service URL and credentials share one request, even across
+ * tenants.
+ */
+public class SingleFlightServiceEndpoint implements ServiceEndpoint {
+
+  private final ServiceEndpoint delegate;
+  private final SingleFlight singleFlight;
+  private final String endpointKey;
+
+  public SingleFlightServiceEndpoint(
+      ServiceEndpoint delegate, SingleFlight singleFlight, String endpointKey) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.singleFlight = Objects.requireNonNull(singleFlight);
+    this.endpointKey = Objects.requireNonNull(endpointKey);
+  }
+
+  /**
+   * Returns a hash of everything that determines the requests sent for the given provider: service
+   * type and URL, credentials, report release and, if harvested via an aggregator, the aggregator
+   * config and vendor code. Tenant specific settings like the provider id are not included.
+   */
+  public static String getEndpointKey(UsageDataProvider provider, AggregatorSetting aggregator) {
+    HarvestingConfig config = provider.getHarvestingConfig();
+    JsonArray key = new JsonArray().add(Objects.toString(config.getReportRelease(), ""));
+    if (aggregator == null) {
+      key.add(Json.encode(config.getSushiConfig()));
+      key.add(Json.encode(provider.getSushiCredentials()));
+    } else {
+      key.add(Objects.toString(aggregator.getServiceType(), ""));
+      key.add(Objects.toString(aggregator.getServiceUrl(), ""));
+      key.add(Json.encode(aggregator.getAggregatorConfig()));
+      key.add(
+          config.getAggregator() == null
+              ? ""
+              : Objects.toString(config.getAggregator().getVendorCode(), ""));
+    }
+    return Hashing.sha256().hashString(key.encode(), StandardCharsets.UTF_8).toString();
+  }
+
+  public ServiceEndpoint getDelegate() {
+    return delegate;
+  }
+
+  private <T> Future<T> execute(
+      String method, String report, Object begin, Object end, Supplier<Future<T>> request) {
+    return singleFlight.execute(
+        String.join(":", endpointKey, method, report, String.valueOf(begin), String.valueOf(end)),
+        request);
+  }
+
+  @Override
+  public boolean isValidReport(String report) {
+    return delegate.isValidReport(report);
+  }
+
+  @Override
+  public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
+    return execute(
+        "single",
+        report,
+        beginDate,
+        endDate,
+        () -> delegate.fetchSingleReport(report, beginDate, endDate));
+  }
+
+  @Override
+  public Future<Report> fetchReport(String report, String beginDate, String endDate) {
+    return execute(
+        "report",
+        report,
+        beginDate,
+        endDate,
+        () -> delegate.fetchReport(report, beginDate, endDate));
+  }
+
+  @Override
+  public boolean isRangeSupported() {
+    return delegate.isRangeSupported();
+  }
+
+  @Override
+  public Future<Map<YearMonth, Report>> fetchReportRange(
+      String report, YearMonth begin, YearMonth end) {
+    return execute(
+        "range", report, begin, end, () -> delegate.fetchReportRange(report, begin, end));
+  }
+}
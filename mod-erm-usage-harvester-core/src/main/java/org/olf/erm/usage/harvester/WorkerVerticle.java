@@ -9,13 +9,13 @@ import io.vertx.core.AbstractVerticle;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
-import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
 import java.sql.Date;
@@ -24,8 +24,18 @@ import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.folio.okapi.common.XOkapiHeaders;
 import org.folio.rest.jaxrs.model.Aggregator;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
@@ -34,9 +44,15 @@ import org.folio.rest.jaxrs.model.CounterReports;
 import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestVia;
 import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestingStatus;
 import org.folio.rest.jaxrs.model.Report;
+import org.folio.rest.jaxrs.model.SushiConfig;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.folio.rest.jaxrs.model.UsageDataProviders;
+import org.olf.erm.usage.harvester.endpoints.ResponseArchive;
 import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpointContext;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpointRegistry;
+import org.olf.erm.usage.harvester.endpoints.ServiceExecutors;
+import org.olf.erm.usage.harvester.endpoints.TransferCompression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.MessageFormatter;
@@ -49,28 +65,33 @@ public class WorkerVerticle extends AbstractVerticle {
   private static final String CONFIG_MODULE = "ERM-USAGE-HARVESTER";
   private static final String CONFIG_CODE = "maxFailedAttempts";
   private static final String CONFIG_PATH = "/configurations/entries";
+  private static final int DEFAULT_PROVIDER_PAGE_SIZE = 30;
+  private static final int DEFAULT_FETCH_RANGE_MAX_MONTHS = 12;
 
   private String okapiUrl;
   private String reportsPath;
   private String providerPath;
   private String aggregatorPath;
+  private WebClient client;
+  private FetchScheduler scheduler;
+  private HostRateLimiter rateLimiter;
+  private ServiceEndpointCache endpointCache;
+  private ReportUploader uploader;
+  private RetryPolicy retryPolicy;
   private Token token;
   private String providerId = null;
+  private boolean reprocess = false;
   private int maxFailedAttempts = 5;
-
-  private Handler<AsyncResult<CompositeFuture>> processingCompleteHandler =
-      h -> {
-        if (h.succeeded()) {
-          LOG.info("Tenant: {}, Processing completed", token.getTenantId());
-          vertx.undeploy(this.deploymentID());
-        } else {
-          LOG.error(
-              "Tenant: {}, Error during processing, {}",
-              token.getTenantId(),
-              h.cause().getMessage(),
-              h.cause());
-        }
-      };
+  private int providerPageSize = DEFAULT_PROVIDER_PAGE_SIZE;
+  private JsonObject fetchRangeConfig = new JsonObject();
+  private boolean aggregatorBatching = true;
+  private boolean singleFlight = true;
+  private boolean journaling = true;
+  private long journalMaxAge;
+  private long journalStaleAfter;
+  private final Map<String, AggregatorBatch> aggregatorBatches = new ConcurrentHashMap<>();
+  // host of the service endpoint of every provider, for the HostRateLimiter
+  private final Map<String, String> providerHosts = new ConcurrentHashMap<>();
 
   public WorkerVerticle(Token token) {
     this.token = token;
@@ -81,32 +102,60 @@ public class WorkerVerticle extends AbstractVerticle {
     this.providerId = providerId;
   }
 
+  /**
+   * @param token token
+   * @param providerId id of the provider to process, all active providers if {@code null}
+   * @param reprocess rebuild reports from the {@link ResponseArchive} instead of fetching them
+   */
+  public WorkerVerticle(Token token, String providerId, boolean reprocess) {
+    this.token = token;
+    this.providerId = providerId;
+    this.reprocess = reprocess;
+  }
+
+  private <T> void processingComplete(AsyncResult<T> h) {
+    if (h.succeeded()) {
+      LOG.info("Tenant: {}, Processing completed", token.getTenantId());
+      vertx.undeploy(this.deploymentID());
+    } else {
+      LOG.error(
+          "Tenant: {}, Error during processing, {}",
+          token.getTenantId(),
+          h.cause().getMessage(),
+          h.cause());
+    }
+  }
+
   private String format(String pattern, Object... args) {
     return MessageFormatter.arrayFormat(pattern, args).getMessage();
   }
 
-  // TODO: handle limits > 30
+  /** Returns the first page of active providers. */
   public Future<UsageDataProviders> getActiveProviders() {
+    return getActiveProviders(0, providerPageSize);
+  }
+
+  /** Returns a page of active providers, sorted by id. */
+  public Future<UsageDataProviders> getActiveProviders(int offset, int limit) {
     final String logprefix = TENANT + token.getTenantId() + ", {}";
     final String url = okapiUrl + providerPath;
     final String queryStr =
-        String.format("(harvestingConfig.harvestingStatus=%s)", HarvestingStatus.ACTIVE);
-    LOG.info(logprefix, "getting providers");
+        String.format(
+            "(harvestingConfig.harvestingStatus=%s) sortby id", HarvestingStatus.ACTIVE);
+    LOG.info(logprefix, "getting providers, offset: " + offset + ", limit: " + limit);
 
     Promise<UsageDataProviders> promise = Promise.promise();
 
-    WebClient client = WebClient.create(vertx);
     client
         .requestAbs(HttpMethod.GET, url)
         .putHeader(XOkapiHeaders.TOKEN, token.getToken())
         .putHeader(XOkapiHeaders.TENANT, token.getTenantId())
         .putHeader(HttpHeaders.ACCEPT, MediaType.JSON_UTF_8.toString())
-        .setQueryParam("limit", "30")
-        .setQueryParam("offset", "0")
+        .setQueryParam("limit", String.valueOf(limit))
+        .setQueryParam("offset", String.valueOf(offset))
         .setQueryParam(QUERY_PARAM, queryStr)
         .send(
             ar -> {
-              client.close();
               if (ar.succeeded()) {
                 if (ar.result().statusCode() == 200) {
                   UsageDataProviders entity;
@@ -135,6 +184,18 @@ public class WorkerVerticle extends AbstractVerticle {
     return promise.future();
   }
 
+  /**
+   * Returns a {@link ReadStream} of all active providers. Providers are requested page by page,
+   * the next page is requested when the previous one has been consumed.
+   */
+  public ReadStream<UsageDataProvider> streamActiveProviders() {
+    return new PagedReadStream<>(
+        context,
+        providerPageSize,
+        (offset, limit) ->
+            getActiveProviders(offset, limit).map(UsageDataProviders::getUsageDataProviders));
+  }
+
   public Future<AggregatorSetting> getAggregatorSetting(UsageDataProvider provider) {
     final String logprefix = TENANT + token.getTenantId() + ", {}";
     Promise<AggregatorSetting> promise = Promise.promise();
@@ -146,7 +207,6 @@ public class WorkerVerticle extends AbstractVerticle {
     }
 
     final String aggrUrl = okapiUrl + aggregatorPath + "/" + aggregator.getId();
-    WebClient client = WebClient.create(vertx);
     client
         .requestAbs(HttpMethod.GET, aggrUrl)
         .putHeader(XOkapiHeaders.TOKEN, token.getToken())
@@ -154,7 +214,6 @@ public class WorkerVerticle extends AbstractVerticle {
         .putHeader(HttpHeaders.ACCEPT, MediaType.JSON_UTF_8.toString())
         .send(
             ar -> {
-              client.close();
               if (ar.succeeded()) {
                 if (ar.result().statusCode() == 200) {
                   try {
@@ -190,6 +249,12 @@ public class WorkerVerticle extends AbstractVerticle {
 
   public CounterReport createCounterReport(
       String reportData, String reportName, UsageDataProvider provider, YearMonth yearMonth) {
+    Report report = reportData == null ? null : Json.decodeValue(reportData, Report.class);
+    return createCounterReport(report, reportName, provider, yearMonth);
+  }
+
+  public CounterReport createCounterReport(
+      Report report, String reportName, UsageDataProvider provider, YearMonth yearMonth) {
     CounterReport cr = new CounterReport();
     cr.setId(UUID.randomUUID().toString());
     cr.setYearMonth(yearMonth.toString());
@@ -197,8 +262,8 @@ public class WorkerVerticle extends AbstractVerticle {
     cr.setRelease(provider.getHarvestingConfig().getReportRelease().toString());
     cr.setProviderId(provider.getId());
     cr.setDownloadTime(Date.from(Instant.now()));
-    if (reportData != null) {
-      cr.setReport(Json.decodeValue(reportData, Report.class));
+    if (report != null) {
+      cr.setReport(report);
     } else {
       cr.setFailedAttempts(1);
     }
@@ -206,6 +271,13 @@ public class WorkerVerticle extends AbstractVerticle {
   }
 
   public Future<ServiceEndpoint> getServiceEndpoint(UsageDataProvider provider) {
+    if (reprocess && !ResponseArchive.get().isEnabled()) {
+      return Future.failedFuture(
+          String.format(
+              "Tenant: %s, Provider: %s, Response archive is not configured",
+              token.getTenantId(), provider.getLabel()));
+    }
+
     Promise<AggregatorSetting> aggrPromise = Promise.promise();
     Promise<ServiceEndpoint> sepPromise = Promise.promise();
 
@@ -213,7 +285,10 @@ public class WorkerVerticle extends AbstractVerticle {
         provider.getHarvestingConfig().getHarvestVia().equals(HarvestVia.AGGREGATOR);
     Aggregator aggregator = provider.getHarvestingConfig().getAggregator();
     // Complete aggrPromise if aggregator is not set.. aka skip it
-    if (useAggregator && aggregator != null && aggregator.getId() != null) {
+    AggregatorBatch batch = getAggregatorBatch(provider);
+    if (batch != null) {
+      batch.getSetting(() -> getAggregatorSetting(provider)).setHandler(aggrPromise);
+    } else if (useAggregator && aggregator != null && aggregator.getId() != null) {
       getAggregatorSetting(provider).setHandler(aggrPromise);
     } else {
       aggrPromise.complete(null);
@@ -223,9 +298,39 @@ public class WorkerVerticle extends AbstractVerticle {
         .future()
         .compose(
             as -> {
-              ServiceEndpoint sep = ServiceEndpoint.create(provider, as);
-              if (sep != null) {
-                sepPromise.complete(sep);
+              ServiceEndpoint sep =
+                  endpointCache.get(
+                      provider,
+                      as,
+                      () ->
+                          ServiceEndpoint.create(
+                              provider, as, ServiceEndpointContext.get(vertx)));
+              if (sep != null && reprocess) {
+                ServiceEndpoint archived = sep.fromArchive();
+                if (archived == null) {
+                  sepPromise.fail(
+                      String.format(
+                          "Tenant: %s, Provider: %s, Service type does not support reprocessing",
+                          token.getTenantId(), provider.getLabel()));
+                } else {
+                  sepPromise.complete(archived);
+                }
+              } else if (sep != null) {
+                providerHosts.put(
+                    provider.getId(), HostRateLimiter.getHost(getServiceUrl(provider, as)));
+                ServiceEndpoint endpoint = sep;
+                if (singleFlight) {
+                  // identical fetches of other tenants share the request
+                  endpoint =
+                      new SingleFlightServiceEndpoint(
+                          endpoint,
+                          SingleFlight.getShared(),
+                          SingleFlightServiceEndpoint.getEndpointKey(provider, as));
+                } else if (batch != null) {
+                  // without single flight, identical fetches of the batch share the request
+                  endpoint = batch.wrap(endpoint, aggregator.getVendorCode());
+                }
+                sepPromise.complete(endpoint);
               } else {
                 sepPromise.fail(
                     String.format(
@@ -237,25 +342,45 @@ public class WorkerVerticle extends AbstractVerticle {
   }
 
   /**
-   * Returns List of months that that dont need fetching.
+   * Returns the batch of the provider's aggregator for this run, or {@code null} if the provider is
+   * not harvested via an aggregator or batching is disabled.
+   */
+  private AggregatorBatch getAggregatorBatch(UsageDataProvider provider) {
+    Aggregator aggregator = provider.getHarvestingConfig().getAggregator();
+    if (!aggregatorBatching
+        || !HarvestVia.AGGREGATOR.equals(provider.getHarvestingConfig().getHarvestVia())
+        || aggregator == null
+        || aggregator.getId() == null) {
+      return null;
+    }
+    return aggregatorBatches.computeIfAbsent(aggregator.getId(), AggregatorBatch::new);
+  }
+
+  private String getServiceUrl(UsageDataProvider provider, AggregatorSetting as) {
+    if (as != null) {
+      return as.getServiceUrl();
+    }
+    SushiConfig sushiConfig = provider.getHarvestingConfig().getSushiConfig();
+    return sushiConfig == null ? null : sushiConfig.getServiceUrl();
+  }
+
+  /**
+   * Returns all existing reports of a provider within the given range of months. Only the
+   * metadata of the reports is requested.
    *
    * @param providerId providerId
-   * @param reportName reportType
    * @param start start month
    * @param end end month
    * @return
    */
-  public Future<List<YearMonth>> getValidMonths(
-      String providerId, String reportName, YearMonth start, YearMonth end) {
-    Promise<List<YearMonth>> promise = Promise.promise();
-    WebClient client = WebClient.create(vertx);
+  public Future<List<CounterReport>> getExistingReports(
+      String providerId, YearMonth start, YearMonth end) {
+    Promise<List<CounterReport>> promise = Promise.promise();
 
     String queryStr =
         String.format(
-            "(providerId=%s AND "
-                + "((cql.allRecords=1 NOT failedAttempts=\"\") OR (failedAttempts>=%s)) AND "
-                + "reportName==%s AND yearMonth>=%s AND yearMonth<=%s)",
-            providerId, maxFailedAttempts, reportName, start.toString(), end.toString());
+            "(providerId=%s AND yearMonth>=%s AND yearMonth<=%s)",
+            providerId, start.toString(), end.toString());
     client
         .getAbs(okapiUrl + reportsPath)
         .putHeader(XOkapiHeaders.TOKEN, token.getToken())
@@ -270,11 +395,7 @@ public class WorkerVerticle extends AbstractVerticle {
               if (ar.succeeded()) {
                 if (ar.result().statusCode() == 200) {
                   CounterReports result = ar.result().bodyAsJson(CounterReports.class);
-                  List<YearMonth> availableMonths = new ArrayList<>();
-                  result
-                      .getCounterReports()
-                      .forEach(r -> availableMonths.add(YearMonth.parse(r.getYearMonth())));
-                  promise.complete(availableMonths);
+                  promise.complete(result.getCounterReports());
                 } else {
                   promise.fail(
                       String.format(
@@ -291,6 +412,38 @@ public class WorkerVerticle extends AbstractVerticle {
     return promise.future();
   }
 
+  /**
+   * Returns the months that dont need fetching, grouped by report type. A month needs fetching if
+   * there is no report for it or if the report failed less than {@code maxFailedAttempts} times.
+   *
+   * @param providerId providerId
+   * @param start start month
+   * @param end end month
+   * @return
+   */
+  public Future<Map<String, MonthCoverage>> getValidMonths(
+      String providerId, YearMonth start, YearMonth end) {
+    return getExistingReports(providerId, start, end)
+        .map(reports -> getValidMonths(reports, start, end));
+  }
+
+  private Map<String, MonthCoverage> getValidMonths(
+      List<CounterReport> reports, YearMonth start, YearMonth end) {
+    Map<String, MonthCoverage> validMonths = new HashMap<>();
+    reports.stream()
+        .filter(this::isValid)
+        .forEach(
+            r ->
+                validMonths
+                    .computeIfAbsent(r.getReportName(), k -> new MonthCoverage(start, end))
+                    .add(YearMonth.parse(r.getYearMonth())));
+    return validMonths;
+  }
+
+  private boolean isValid(CounterReport report) {
+    return report.getFailedAttempts() == null || report.getFailedAttempts() >= maxFailedAttempts;
+  }
+
   /**
    * Returns a List of FetchItems/Months that need fetching.
    *
@@ -311,60 +464,87 @@ public class WorkerVerticle extends AbstractVerticle {
       return Future.failedFuture("Harvesting not active");
     }
 
-    Promise<List<FetchItem>> promise = Promise.promise();
-
     YearMonth startMonth =
         DateUtil.getStartMonth(provider.getHarvestingConfig().getHarvestingStart());
     YearMonth endMonth = DateUtil.getEndMonth(provider.getHarvestingConfig().getHarvestingEnd());
 
-    List<FetchItem> fetchList = new ArrayList<>();
+    return getExistingReports(provider.getId(), startMonth, endMonth)
+        .map(
+            reports -> {
+              Map<String, MonthCoverage> validMonths =
+                  getValidMonths(reports, startMonth, endMonth);
+              // reports that failed before, needed to update them instead of creating new ones
+              Map<String, CounterReport> failedReports = new HashMap<>();
+              reports.stream()
+                  .filter(r -> !isValid(r))
+                  .forEach(
+                      r -> failedReports.putIfAbsent(r.getReportName() + r.getYearMonth(), r));
 
-    @SuppressWarnings("rawtypes")
-    List<Future> futures = new ArrayList<>();
-    provider
-        .getHarvestingConfig()
-        .getRequestedReports()
-        .forEach(
-            reportName ->
-                futures.add(
-                    getValidMonths(provider.getId(), reportName, startMonth, endMonth)
-                        .map(
-                            list -> {
-                              List<YearMonth> arrayList =
-                                  DateUtil.getYearMonths(
-                                      provider.getHarvestingConfig().getHarvestingStart(),
-                                      provider.getHarvestingConfig().getHarvestingEnd());
-                              arrayList.removeAll(list);
-                              arrayList.forEach(
-                                  li -> {
+              List<FetchItem> fetchList = new ArrayList<>();
+              provider
+                  .getHarvestingConfig()
+                  .getRequestedReports()
+                  .forEach(
+                      reportName ->
+                          validMonths
+                              .getOrDefault(reportName, new MonthCoverage(startMonth, endMonth))
+                              .forEachMissing(
+                                  month -> {
+                                    CounterReport failed =
+                                        failedReports.get(reportName + month.toString());
                                     FetchItem fetchItem =
                                         new FetchItem(
                                             reportName,
-                                            li.atDay(1).toString(),
-                                            li.atEndOfMonth().toString());
+                                            month.atDay(1).toString(),
+                                            month.atEndOfMonth().toString(),
+                                            failed == null ? null : failed.getId(),
+                                            failed == null ? null : failed.getFailedAttempts());
                                     LOG.info(
-                                        "Created FetchItem: "
-                                            + fetchItem.reportType
-                                            + " "
-                                            + fetchItem.begin
-                                            + " "
-                                            + fetchItem.end);
+                                        "Created FetchItem: {} {} {}",
+                                        fetchItem.reportType,
+                                        fetchItem.begin,
+                                        fetchItem.end);
                                     fetchList.add(fetchItem);
-                                  });
-                              return Future.succeededFuture();
-                            })));
+                                  }));
+              return fetchList;
+            });
+  }
 
-    CompositeFuture.all(futures)
-        .setHandler(
-            ar -> {
-              if (ar.succeeded()) {
-                promise.complete(fetchList);
-              } else {
-                promise.fail(ar.cause());
+  /**
+   * Returns a List of FetchItems for all months of the harvesting period, used to rebuild reports
+   * from the {@link ResponseArchive}. Existing reports are updated.
+   *
+   * @param provider UsageDataProvider
+   * @return
+   */
+  public Future<List<FetchItem>> getReprocessList(UsageDataProvider provider) {
+    YearMonth startMonth =
+        DateUtil.getStartMonth(provider.getHarvestingConfig().getHarvestingStart());
+    YearMonth endMonth = DateUtil.getEndMonth(provider.getHarvestingConfig().getHarvestingEnd());
+
+    return getExistingReports(provider.getId(), startMonth, endMonth)
+        .map(
+            reports -> {
+              Map<String, CounterReport> existing = new HashMap<>();
+              reports.forEach(r -> existing.putIfAbsent(r.getReportName() + r.getYearMonth(), r));
+
+              List<FetchItem> list = new ArrayList<>();
+              for (String reportName : provider.getHarvestingConfig().getRequestedReports()) {
+                for (YearMonth month = startMonth;
+                    !month.isAfter(endMonth);
+                    month = month.plusMonths(1)) {
+                  CounterReport report = existing.get(reportName + month.toString());
+                  list.add(
+                      new FetchItem(
+                          reportName,
+                          month.atDay(1).toString(),
+                          month.atEndOfMonth().toString(),
+                          report == null ? null : report.getId(),
+                          report == null ? null : report.getFailedAttempts()));
+                }
               }
+              return list;
             });
-
-    return promise.future();
   }
 
   @SuppressWarnings("rawtypes")
@@ -376,7 +556,7 @@ public class WorkerVerticle extends AbstractVerticle {
     Promise<List<Future>> promise = Promise.promise();
 
     Future<ServiceEndpoint> sep = getServiceEndpoint(provider);
-    sep.compose(s -> getFetchList(provider))
+    sep.compose(s -> reprocess ? getReprocessList(provider) : getPlan(provider))
         .compose(
             list -> {
               if (list.isEmpty()) {
@@ -384,42 +564,18 @@ public class WorkerVerticle extends AbstractVerticle {
                     logprefix,
                     "Provider: " + provider.getLabel() + ", No reports need to be fetched.");
               }
-              list.forEach(
-                  li -> {
-                    Promise complete = Promise.promise();
-                    futList.add(complete.future());
-                    sep.result()
-                        .fetchSingleReport(li.reportType, li.begin, li.end)
-                        .setHandler(
-                            h -> {
-                              CounterReport report;
-                              LocalDate parse = LocalDate.parse(li.begin);
-                              YearMonth month = YearMonth.of(parse.getYear(), parse.getMonth());
-                              if (h.succeeded()) {
-                                report =
-                                    createCounterReport(h.result(), li.reportType, provider, month);
-                              } else {
-                                report = createCounterReport(null, li.reportType, provider, month);
-                                report.setFailedReason(h.cause().getMessage());
-                                LOG.error(
-                                    logprefix,
-                                    "Provider: "
-                                        + provider.getLabel()
-                                        + ", "
-                                        + li.toString()
-                                        + ", "
-                                        + h.cause().getMessage());
-                              }
-                              postReport(report)
-                                  .setHandler(
-                                      h2 -> {
-                                        complete.complete();
-                                        if (h2.failed()) {
-                                          LOG.error(h2.cause().getMessage());
-                                        }
-                                      });
-                            });
-                  });
+              int maxMonths = sep.result().isRangeSupported() ? getMaxRangeMonths(provider) : 1;
+              // fetches via the same aggregator are queued as one batch
+              AggregatorBatch batch = getAggregatorBatch(provider);
+              String schedulerKey = batch == null ? provider.getId() : batch.getSchedulerKey();
+              // archived responses are not limited
+              String host = reprocess ? null : providerHosts.get(provider.getId());
+              groupIntoRanges(list, maxMonths)
+                  .forEach(
+                      range ->
+                          futList.add(
+                              scheduleRange(schedulerKey, host, sep.result(), provider, range, 1, 0)
+                                  .compose(v -> removeFromJournal(provider, range))));
               promise.complete(futList);
               return Future.<Void>succeededFuture();
             })
@@ -433,45 +589,573 @@ public class WorkerVerticle extends AbstractVerticle {
     return promise.future();
   }
 
-  public Future<HttpResponse<Buffer>> postReport(CounterReport report) {
-    return getReport(report.getProviderId(), report.getReportName(), report.getYearMonth(), true)
+  /**
+   * Schedules the fetch of a range of items. A fetch waits for the {@link HostRateLimiter} of its
+   * host before it takes a slot of the {@link FetchScheduler}, so fetches waiting for a throttled
+   * host do not hold slots of other hosts. A fetch releases its slot once the uploads of its
+   * reports have been started, so reports waiting for upload hold back new fetches. Fetches that
+   * failed with a transient error are not posted, but scheduled again at the back of the queue once
+   * their backoff delay has passed, so they do not block a slot while waiting. The months of a
+   * failed range are scheduled again one by one. The returned future always succeeds once all
+   * items have been posted.
+   *
+   * @param host host the items are fetched from, not limited if {@code null}
+   * @param attempt number of the attempt, starting with 1
+   * @param rejections number of times the fetch was rejected by a saturated executor so far
+   */
+  @SuppressWarnings("rawtypes")
+  private Future<Void> scheduleRange(
+      String schedulerKey,
+      String host,
+      ServiceEndpoint sep,
+      UsageDataProvider provider,
+      List<FetchItem> range,
+      int attempt,
+      int rejections) {
+    Supplier<Future<FetchResult>> fetch =
+        () ->
+            scheduler.schedule(
+                token.getTenantId(),
+                schedulerKey,
+                () -> processRange(sep, provider, range, attempt, rejections));
+    return (host == null ? fetch.get() : rateLimiter.execute(host, fetch))
         .compose(
-            existing -> {
-              if (existing == null) { // no report found
-                // POST the report
-                return sendReportRequest(HttpMethod.POST, report);
-              } else {
-                if (report.getFailedAttempts() != null) {
-                  report.setFailedAttempts(existing.getFailedAttempts() + 1);
+            result -> {
+              List<Future> futures = new ArrayList<>();
+              futures.add(result.posted);
+              for (DeferredFetch d : result.deferred) {
+                if (d.delay <= 0) {
+                  futures.add(
+                      scheduleRange(
+                          schedulerKey, host, sep, provider, d.items, d.attempt, d.rejections));
+                  continue;
+                }
+                LOG.info(
+                    "Tenant: {}, Provider: {}, retrying {} items starting {} in {} ms "
+                        + "({}, attempt {})",
+                    token.getTenantId(),
+                    provider.getLabel(),
+                    d.items.size(),
+                    d.items.get(0),
+                    d.delay,
+                    d.reason,
+                    d.attempt);
+                Promise<Void> promise = Promise.promise();
+                vertx.setTimer(
+                    d.delay,
+                    id ->
+                        scheduleRange(
+                                schedulerKey, host, sep, provider, d.items, d.attempt, d.rejections)
+                            .setHandler(promise));
+                futures.add(promise.future());
+              }
+              return CompositeFuture.join(futures).<Void>mapEmpty().otherwise((Void) null);
+            });
+  }
+
+  private Future<FetchResult> processRange(
+      ServiceEndpoint sep,
+      UsageDataProvider provider,
+      List<FetchItem> range,
+      int attempt,
+      int rejections) {
+    if (reprocess) {
+      return reprocessReport(sep, provider, range.get(0));
+    }
+    return range.size() == 1
+        ? fetchAndPostReport(sep, provider, range.get(0), attempt, rejections)
+        : fetchAndPostReportRange(sep, provider, range, attempt, rejections);
+  }
+
+  /**
+   * Returns the fetch to defer if the given error is transient and the {@link RetryPolicy} allows
+   * another attempt, {@code null} otherwise. Rejected fetches keep their attempt number, their
+   * rejections are counted separately.
+   */
+  private DeferredFetch defer(List<FetchItem> items, Throwable cause, int attempt, int rejections) {
+    RetryPolicy.ErrorType type = RetryPolicy.classify(cause);
+    if (type == RetryPolicy.ErrorType.REJECTED) {
+      if (!retryPolicy.shouldRetry(type, rejections + 1)) {
+        return null;
+      }
+      long delay = retryPolicy.getDelay(type, rejections + 1);
+      return new DeferredFetch(items, attempt, rejections + 1, delay, type.name());
+    }
+    if (!retryPolicy.shouldRetry(type, attempt)) {
+      return null;
+    }
+    long delay = retryPolicy.getDelay(type, attempt);
+    return new DeferredFetch(items, attempt + 1, rejections, delay, type.name());
+  }
+
+  /**
+   * Returns a future completing once the requests of all given uploads have been started, so a
+   * fetch keeps its slot while its reports wait for upload.
+   */
+  @SuppressWarnings("rawtypes")
+  private Future<FetchResult> whenDispatched(List<ReportUploader.Upload> uploads) {
+    List<Future> dispatched = new ArrayList<>();
+    List<Future> responses = new ArrayList<>();
+    uploads.forEach(
+        u -> {
+          dispatched.add(u.getDispatched());
+          responses.add(logUploadFailure(u.getResponse()));
+        });
+    return CompositeFuture.join(dispatched)
+        .map(v -> FetchResult.posted(CompositeFuture.join(responses).mapEmpty()));
+  }
+
+  /** Logs a failed upload. The returned future always succeeds. */
+  private Future<Void> logUploadFailure(Future<?> upload) {
+    return upload
+        .<Void>mapEmpty()
+        .otherwise(
+            t -> {
+              LOG.error(t.getMessage());
+              return null;
+            });
+  }
+
+  /** Outcome of a fetch: the fetches to retry, and the uploads of the fetched reports. */
+  private static class FetchResult {
+    private final List<DeferredFetch> deferred;
+    private final Future<Void> posted;
+
+    FetchResult(List<DeferredFetch> deferred, Future<Void> posted) {
+      this.deferred = deferred;
+      this.posted = posted;
+    }
+
+    static FetchResult posted(Future<Void> posted) {
+      return new FetchResult(Collections.emptyList(), posted);
+    }
+
+    static FetchResult deferred(DeferredFetch deferred) {
+      return new FetchResult(Collections.singletonList(deferred), Future.succeededFuture());
+    }
+  }
+
+  /** Items of a failed fetch that are scheduled again. */
+  private static class DeferredFetch {
+    private final List<FetchItem> items;
+    private final int attempt;
+    private final int rejections;
+    private final long delay;
+    private final String reason;
+
+    /**
+     * @param items items to fetch
+     * @param attempt number of the next attempt
+     * @param rejections number of times the items were rejected by a saturated executor so far
+     * @param delay milliseconds to wait before scheduling the items, none if {@code 0}
+     * @param reason why the items are fetched again, for logging
+     */
+    DeferredFetch(List<FetchItem> items, int attempt, int rejections, long delay, String reason) {
+      this.items = items;
+      this.attempt = attempt;
+      this.rejections = rejections;
+      this.delay = delay;
+      this.reason = reason;
+    }
+  }
+
+  /**
+   * Creates a new fetch list and records it in the journal. Items an interrupted run left in the
+   * journal are taken over if they are still in the list, items that do not need fetching any
+   * longer are removed from the journal. Items of runs that are still running are left to them.
+   * Harvesting goes on without the journal if it cannot be accessed.
+   *
+   * @param provider UsageDataProvider
+   * @return
+   */
+  public Future<List<FetchItem>> getPlan(UsageDataProvider provider) {
+    if (!journaling
+        || !HarvestingStatus.ACTIVE.equals(provider.getHarvestingConfig().getHarvestingStatus())) {
+      return getFetchList(provider);
+    }
+
+    final String logprefix = TENANT + token.getTenantId() + ", {}";
+    String tenantId = token.getTenantId();
+    long now = System.currentTimeMillis();
+    String owner = deploymentID();
+    return HarvestJournalPgUtil.claim(
+            vertx, tenantId, provider.getId(), owner, now, now - journalStaleAfter)
+        .otherwise(
+            t -> {
+              LOG.warn(
+                  logprefix, "Provider: " + provider.getLabel() + ", journal not available: " + t);
+              return null;
+            })
+        .compose(
+            entries -> {
+              if (entries == null) {
+                return getFetchList(provider);
+              }
+              long expiry = now - journalMaxAge;
+              Map<Boolean, List<FetchItem>> claimed =
+                  entries.stream()
+                      .collect(
+                          Collectors.partitioningBy(
+                              e -> e.getCreated() != null && e.getCreated() >= expiry,
+                              Collectors.mapping(
+                                  HarvestJournalEntry::toFetchItem, Collectors.toList())));
+              // expired items are recorded again if they are still in the fetch list
+              return removeFromJournal(provider, claimed.get(false))
+                  .compose(v -> getFetchList(provider))
+                  .compose(list -> mergePlan(provider, list, claimed.get(true), now));
+            });
+  }
+
+  /**
+   * Records the items of a new fetch list in the journal, except for the items this run took over
+   * from an interrupted run. Taken over items that are not in the list any longer, because they
+   * got a valid report in the meantime, are removed from the journal.
+   *
+   * @param list new fetch list
+   * @param resumed items taken over from an interrupted run
+   * @return the items of the list this run owns, in the order of the list
+   */
+  private Future<List<FetchItem>> mergePlan(
+      UsageDataProvider provider, List<FetchItem> list, List<FetchItem> resumed, long now) {
+    final String logprefix = TENANT + token.getTenantId() + ", {}";
+    Set<String> planned = list.stream().map(WorkerVerticle::getPlanKey).collect(Collectors.toSet());
+    Set<String> resumedKeys = new HashSet<>();
+    List<FetchItem> done = new ArrayList<>();
+    resumed.forEach(
+        item -> {
+          if (planned.contains(getPlanKey(item))) {
+            resumedKeys.add(getPlanKey(item));
+          } else {
+            done.add(item);
+          }
+        });
+    removeFromJournal(provider, done);
+    if (!resumedKeys.isEmpty()) {
+      LOG.info(
+          logprefix,
+          "Provider: "
+              + provider.getLabel()
+              + ", resuming "
+              + resumedKeys.size()
+              + " items of an interrupted run");
+    }
+
+    List<FetchItem> fresh =
+        list.stream()
+            .filter(item -> !resumedKeys.contains(getPlanKey(item)))
+            .collect(Collectors.toList());
+    return HarvestJournalPgUtil.save(
+            vertx, token.getTenantId(), provider.getId(), fresh, now, deploymentID())
+        .map(
+            saved -> {
+              if (saved.size() < fresh.size()) {
+                LOG.info(
+                    logprefix,
+                    "Provider: "
+                        + provider.getLabel()
+                        + ", skipping "
+                        + (fresh.size() - saved.size())
+                        + " items processed by another run");
+              }
+              Set<String> owned = new HashSet<>(resumedKeys);
+              saved.forEach(item -> owned.add(getPlanKey(item)));
+              return list.stream()
+                  .filter(item -> owned.contains(getPlanKey(item)))
+                  .collect(Collectors.toList());
+            })
+        .otherwise(
+            t -> {
+              LOG.warn(
+                  logprefix,
+                  "Provider: " + provider.getLabel() + ", failed recording journal: " + t);
+              return list;
+            });
+  }
+
+  private static String getPlanKey(FetchItem item) {
+    return item.reportType + "|" + item.begin;
+  }
+
+  /** Updates the heartbeat of the items this run owns in the journal. */
+  private void heartbeat() {
+    HarvestJournalPgUtil.heartbeat(
+            vertx, token.getTenantId(), deploymentID(), System.currentTimeMillis())
+        .setHandler(
+            ar -> {
+              if (ar.failed()) {
+                LOG.warn(
+                    "Tenant: {}, failed updating journal heartbeat: {}",
+                    token.getTenantId(),
+                    ar.cause().getMessage());
+              }
+            });
+  }
+
+  /** Removes processed items from the journal. The returned future always succeeds. */
+  private Future<Void> removeFromJournal(UsageDataProvider provider, List<FetchItem> items) {
+    if (!journaling || items.isEmpty()) {
+      return Future.succeededFuture();
+    }
+    return HarvestJournalPgUtil.delete(vertx, token.getTenantId(), provider.getId(), items)
+        .otherwise(
+            t -> {
+              LOG.warn(
+                  "Tenant: {}, Provider: {}, failed removing items from journal: {}",
+                  token.getTenantId(),
+                  provider.getLabel(),
+                  t.getMessage());
+              return null;
+            });
+  }
+
+  /**
+   * Returns the max number of months fetched with a single request for the given provider, as
+   * configured in the {@code fetchRange} object of the module configuration.
+   */
+  private int getMaxRangeMonths(UsageDataProvider provider) {
+    JsonObject providers = fetchRangeConfig.getJsonObject("providers", new JsonObject());
+    Integer providerMax = providers.getInteger(provider.getId());
+    return providerMax != null
+        ? providerMax
+        : fetchRangeConfig.getInteger("maxMonths", DEFAULT_FETCH_RANGE_MAX_MONTHS);
+  }
+
+  /**
+   * Groups consecutive months of the same report type into ranges of at most {@code maxMonths}
+   * months. Items must be ordered by report type and month, as returned by {@link
+   * #getFetchList(UsageDataProvider)}.
+   */
+  static List<List<FetchItem>> groupIntoRanges(List<FetchItem> items, int maxMonths) {
+    List<List<FetchItem>> ranges = new ArrayList<>();
+    List<FetchItem> current = new ArrayList<>();
+    YearMonth previous = null;
+    for (FetchItem item : items) {
+      YearMonth month = YearMonth.from(LocalDate.parse(item.begin));
+      boolean contiguous =
+          !current.isEmpty()
+              && current.get(0).reportType.equals(item.reportType)
+              && month.equals(previous.plusMonths(1));
+      if (!contiguous || current.size() >= maxMonths) {
+        if (!current.isEmpty()) {
+          ranges.add(current);
+        }
+        current = new ArrayList<>();
+      }
+      current.add(item);
+      previous = month;
+    }
+    if (!current.isEmpty()) {
+      ranges.add(current);
+    }
+    return ranges;
+  }
+
+  /**
+   * Fetches the reports of consecutive {@link FetchItem}s with a single request and posts one
+   * report per month. A range failing with a transient error is deferred as a whole, on other
+   * errors its months are scheduled again to be fetched one by one. Months missing from the
+   * response are fetched one by one as well.
+   *
+   * @return future completing with the fetches to retry once the reports are sent
+   */
+  private Future<FetchResult> fetchAndPostReportRange(
+      ServiceEndpoint sep,
+      UsageDataProvider provider,
+      List<FetchItem> items,
+      int attempt,
+      int rejections) {
+    final String logprefix = TENANT + token.getTenantId() + ", {}";
+    Promise<FetchResult> complete = Promise.promise();
+    FetchItem first = items.get(0);
+    YearMonth begin = YearMonth.from(LocalDate.parse(first.begin));
+    YearMonth end = YearMonth.from(LocalDate.parse(items.get(items.size() - 1).begin));
+    sep.fetchReportRange(first.reportType, begin, end)
+        .setHandler(
+            h -> {
+              if (h.failed()) {
+                DeferredFetch deferred = defer(items, h.cause(), attempt, rejections);
+                if (deferred != null) {
+                  complete.complete(FetchResult.deferred(deferred));
+                  return;
+                }
+                LOG.warn(
+                    logprefix,
+                    String.format(
+                        "Provider: %s, range %s %s-%s failed, fetching months separately: %s",
+                        provider.getLabel(), first.reportType, begin, end, h.cause().getMessage()));
+                // months go back through the scheduler, keeping the attempts made so far
+                complete.complete(
+                    new FetchResult(
+                        items.stream()
+                            .map(
+                                li ->
+                                    new DeferredFetch(
+                                        Collections.singletonList(li),
+                                        attempt,
+                                        rejections,
+                                        0,
+                                        "range failed"))
+                            .collect(Collectors.toList()),
+                        Future.succeededFuture()));
+                return;
+              }
+
+              List<ReportUploader.Upload> uploads = new ArrayList<>();
+              List<DeferredFetch> missing = new ArrayList<>();
+              items.forEach(
+                  li -> {
+                    YearMonth month = YearMonth.from(LocalDate.parse(li.begin));
+                    Report result = h.result() == null ? null : h.result().get(month);
+                    if (result == null) {
+                      // fetched alone, so it ends up like any other single month
+                      missing.add(
+                          new DeferredFetch(
+                              Collections.singletonList(li),
+                              attempt,
+                              rejections,
+                              0,
+                              "not in range response"));
+                    } else {
+                      uploads.add(
+                          postReport(
+                              createCounterReport(result, li.reportType, provider, month), li));
+                    }
+                  });
+              whenDispatched(uploads)
+                  .map(r -> new FetchResult(missing, r.posted))
+                  .setHandler(complete);
+            });
+    return complete.future();
+  }
+
+  /**
+   * Fetches the report of the given {@link FetchItem} and posts it. Fetches failing with a
+   * transient error are deferred if the {@link RetryPolicy} allows another attempt, other failed
+   * fetches get posted as failed attempts. The returned future always succeeds once the upload of
+   * the report has been started.
+   *
+   * @return future completing with the fetch to retry, if any
+   */
+  private Future<FetchResult> fetchAndPostReport(
+      ServiceEndpoint sep, UsageDataProvider provider, FetchItem li, int attempt, int rejections) {
+    final String logprefix = TENANT + token.getTenantId() + ", {}";
+    Promise<FetchResult> complete = Promise.promise();
+    sep.fetchReport(li.reportType, li.begin, li.end)
+        .setHandler(
+            h -> {
+              if (h.failed()) {
+                DeferredFetch deferred =
+                    defer(Collections.singletonList(li), h.cause(), attempt, rejections);
+                if (deferred != null) {
+                  complete.complete(FetchResult.deferred(deferred));
+                  return;
                 }
-                report.setId(existing.getId());
-                return sendReportRequest(HttpMethod.PUT, report);
               }
+              CounterReport report;
+              LocalDate parse = LocalDate.parse(li.begin);
+              YearMonth month = YearMonth.of(parse.getYear(), parse.getMonth());
+              if (h.succeeded()) {
+                report = createCounterReport(h.result(), li.reportType, provider, month);
+              } else {
+                report = createCounterReport((Report) null, li.reportType, provider, month);
+                report.setFailedReason(h.cause().getMessage());
+                LOG.error(
+                    logprefix,
+                    "Provider: "
+                        + provider.getLabel()
+                        + ", "
+                        + li.toString()
+                        + ", "
+                        + h.cause().getMessage());
+              }
+              whenDispatched(Collections.singletonList(postReport(report, li)))
+                  .setHandler(complete);
             });
+    return complete.future();
+  }
+
+  /**
+   * Rebuilds the report of the given {@link FetchItem} from the archive and posts it. Months that
+   * cannot be rebuilt are skipped and existing reports are left as they are. The returned future
+   * always succeeds once the upload of the report has been started.
+   */
+  private Future<FetchResult> reprocessReport(
+      ServiceEndpoint sep, UsageDataProvider provider, FetchItem li) {
+    final String logprefix = TENANT + token.getTenantId() + ", {}";
+    Promise<FetchResult> complete = Promise.promise();
+    sep.fetchReport(li.reportType, li.begin, li.end)
+        .setHandler(
+            h -> {
+              if (h.failed()) {
+                LOG.info(
+                    logprefix,
+                    "Provider: " + provider.getLabel() + ", " + li + ", " + h.cause().getMessage());
+                complete.complete(FetchResult.posted(Future.succeededFuture()));
+                return;
+              }
+              YearMonth month = YearMonth.from(LocalDate.parse(li.begin));
+              CounterReport report =
+                  createCounterReport(h.result(), li.reportType, provider, month);
+              whenDispatched(Collections.singletonList(postReport(report, li)))
+                  .setHandler(complete);
+            });
+    return complete.future();
+  }
+
+  /**
+   * Creates a new report or updates the report found while creating the fetch list. Reports are
+   * uploaded by the {@link ReportUploader}.
+   *
+   * @param report report to store
+   * @param item FetchItem the report was fetched for
+   * @return the pending upload of the report
+   */
+  public ReportUploader.Upload postReport(CounterReport report, FetchItem item) {
+    if (item.existingId == null) {
+      return uploader.upload(HttpMethod.POST, report);
+    } else {
+      if (report.getFailedAttempts() != null) {
+        int failedAttempts = item.failedAttempts == null ? 0 : item.failedAttempts;
+        report.setFailedAttempts(failedAttempts + 1);
+      }
+      report.setId(item.existingId);
+      return uploader.upload(HttpMethod.PUT, report);
+    }
   }
 
   public Future<HttpResponse<Buffer>> sendReportRequest(HttpMethod method, CounterReport report) {
+    Buffer body;
+    try {
+      body = JsonUtil.encodeToBuffer(report);
+    } catch (Exception e) {
+      return Future.failedFuture(e);
+    }
+    return sendReportRequest(method, report.getId(), body);
+  }
+
+  public Future<HttpResponse<Buffer>> sendReportRequest(
+      HttpMethod method, String reportId, Buffer body) {
     final String logprefix = TENANT + token.getTenantId() + ", {}";
     String urlTmp = okapiUrl + reportsPath;
     if (!method.equals(HttpMethod.POST) && !method.equals(HttpMethod.PUT)) {
       return Future.failedFuture("HttpMethod not supported");
     } else if (method.equals(HttpMethod.PUT)) {
-      urlTmp += "/" + report.getId();
+      urlTmp += "/" + reportId;
     }
     final String url = urlTmp;
 
     final Promise<HttpResponse<Buffer>> promise = Promise.promise();
 
-    LOG.info(logprefix, "posting report with id " + report.getId());
+    LOG.info(logprefix, "posting report with id " + reportId);
 
-    WebClient client = WebClient.create(vertx);
     client
         .requestAbs(method, url)
         .putHeader(XOkapiHeaders.TOKEN, token.getToken())
         .putHeader(XOkapiHeaders.TENANT, token.getTenantId())
         .putHeader(HttpHeaders.ACCEPT, MediaType.PLAIN_TEXT_UTF_8.toString())
-        .sendJsonObject(
-            JsonObject.mapFrom(report),
+        .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.JSON_UTF_8.toString())
+        .sendBuffer(
+            body,
             ar -> {
               if (ar.succeeded()) {
                 LOG.info(
@@ -491,70 +1175,64 @@ public class WorkerVerticle extends AbstractVerticle {
     return promise.future();
   }
 
-  /** completes with the found report or null if none is found fails otherwise */
-  public Future<CounterReport> getReport(
-      String providerId, String reportName, String month, boolean tiny) {
-    WebClient client = WebClient.create(vertx);
-    Promise<CounterReport> promise = Promise.promise();
-    String queryStr =
-        String.format(
-            "(providerId=%s AND yearMonth=%s AND reportName==%s)", providerId, month, reportName);
-    client
-        .getAbs(okapiUrl + reportsPath)
-        .putHeader(XOkapiHeaders.TOKEN, token.getToken())
-        .putHeader(XOkapiHeaders.TENANT, token.getTenantId())
-        .putHeader(HttpHeaders.ACCEPT, MediaType.JSON_UTF_8.toString())
-        .setQueryParam(QUERY_PARAM, queryStr)
-        .setQueryParam("tiny", String.valueOf(tiny))
-        .send(
-            handler -> {
-              if (handler.succeeded()) {
-                if (handler.result().statusCode() == 200) {
-                  CounterReports collection = handler.result().bodyAsJson(CounterReports.class);
-                  if (collection.getCounterReports().isEmpty()) {
-                    promise.complete(null);
-                  } else if (collection.getCounterReports().size() == 1) {
-                    promise.complete(collection.getCounterReports().get(0));
-                  } else {
-                    String msg =
-                        String.format(
-                            "Tenant: %s, Provider: %s, %s",
-                            token.getTenantId(),
-                            providerId,
-                            "Too many results for "
-                                + reportName
-                                + ", "
-                                + month
-                                + ", not processed");
-                    promise.fail(msg);
-                  }
-                } else {
-                  promise.fail("received status code " + handler.result().statusCode());
-                }
-              } else {
-                promise.fail(handler.cause());
+  public void run() {
+    final String logprefix = TENANT + token.getTenantId() + ", {}";
+    Promise<Void> promise = Promise.promise();
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicBoolean ended = new AtomicBoolean();
+    AtomicReference<Throwable> error = new AtomicReference<>();
+
+    Runnable checkComplete =
+        () -> {
+          if (ended.get() && inFlight.get() == 0) {
+            if (error.get() == null) {
+              promise.tryComplete();
+            } else {
+              promise.tryFail(error.get());
+            }
+          }
+        };
+
+    ReadStream<UsageDataProvider> providers = streamActiveProviders();
+    providers
+        .exceptionHandler(
+            t -> {
+              LOG.error(logprefix, "error getting providers: " + t.getMessage());
+              error.set(t);
+              ended.set(true);
+              checkComplete.run();
+            })
+        .endHandler(
+            v -> {
+              ended.set(true);
+              checkComplete.run();
+            })
+        .handler(
+            provider -> {
+              // keep at most one page of providers in processing
+              if (inFlight.incrementAndGet() >= providerPageSize) {
+                providers.pause();
               }
+              fetchAndPostReports(provider)
+                  .compose(CompositeFuture::join)
+                  .setHandler(
+                      ar ->
+                          context.runOnContext(
+                              v -> {
+                                if (inFlight.decrementAndGet() < providerPageSize) {
+                                  providers.resume();
+                                }
+                                checkComplete.run();
+                              }));
             });
-    return promise.future();
-  }
 
-  public void run() {
-    getActiveProviders()
-        .compose(
-            providers -> {
-              @SuppressWarnings("rawtypes")
-              List<Future> complete = new ArrayList<>();
-              providers
-                  .getUsageDataProviders()
-                  .forEach(
-                      p ->
-                          complete.add(this.fetchAndPostReports(p).compose(CompositeFuture::join)));
-              CompositeFuture.join(complete).setHandler(processingCompleteHandler);
-              return Future.succeededFuture();
-            })
+    promise
+        .future()
         .setHandler(
             h -> {
-              if (h.failed()) {
+              if (h.succeeded()) {
+                processingComplete(h);
+              } else {
                 LOG.error(
                     "Verticle has failed, id: {}, {}", this.deploymentID(), h.cause().getMessage());
                 vertx.undeploy(this.deploymentID());
@@ -563,7 +1241,6 @@ public class WorkerVerticle extends AbstractVerticle {
   }
 
   public void runSingleProvider() {
-    WebClient client = WebClient.create(vertx);
     client
         .getAbs(okapiUrl + providerPath + "/" + providerId)
         .putHeader(XOkapiHeaders.TOKEN, token.getToken())
@@ -580,7 +1257,7 @@ public class WorkerVerticle extends AbstractVerticle {
                       .equals(HarvestingStatus.ACTIVE)) {
                     fetchAndPostReports(provider)
                         .compose(CompositeFuture::join)
-                        .setHandler(processingCompleteHandler);
+                        .setHandler(this::processingComplete);
                   } else {
                     LOG.error(
                         TENANT
@@ -611,7 +1288,41 @@ public class WorkerVerticle extends AbstractVerticle {
   @Override
   public void stop() throws Exception {
     super.stop();
-    LOG.info("Tenant: {}, undeployed WorkerVerticle", token.getTenantId());
+    LOG.info(
+        "Tenant: {}, undeployed WorkerVerticle, Okapi client statistics: {}, scheduler: {}, "
+            + "host limits: {}, report upload: {}, endpoint cache: {}, service executors: {}, "
+            + "transfer compression: {}, single flight: {}, response archive: {}, retries: {}",
+        token.getTenantId(),
+        SharedWebClient.getStatistics(vertx),
+        scheduler.getStatistics(),
+        rateLimiter.getStatistics(),
+        uploader.getStatistics(),
+        endpointCache.getStatistics(),
+        ServiceExecutors.getStatistics(),
+        TransferCompression.getStatistics(),
+        SingleFlight.getShared().getStatistics(),
+        ResponseArchive.get().getStatistics(),
+        retryPolicy.getStatistics());
+    aggregatorBatches.forEach(
+        (id, batch) ->
+            LOG.info(
+                "Tenant: {}, aggregator {} statistics: {}",
+                token.getTenantId(),
+                id,
+                batch.getStatistics()));
+    ServiceEndpointRegistry.get()
+        .getProviders()
+        .forEach(
+            p -> {
+              JsonObject stats = p.getStatistics();
+              if (!stats.isEmpty()) {
+                LOG.info(
+                    "Tenant: {}, {} statistics: {}",
+                    token.getTenantId(),
+                    p.getServiceType(),
+                    stats);
+              }
+            });
   }
 
   @Override
@@ -622,6 +1333,27 @@ public class WorkerVerticle extends AbstractVerticle {
     reportsPath = config().getString("reportsPath");
     providerPath = config().getString("providerPath");
     aggregatorPath = config().getString("aggregatorPath");
+    providerPageSize = config().getInteger("providerPageSize", DEFAULT_PROVIDER_PAGE_SIZE);
+    fetchRangeConfig = config().getJsonObject("fetchRange", new JsonObject());
+    aggregatorBatching =
+        config().getJsonObject("aggregatorBatch", new JsonObject()).getBoolean("enabled", true);
+    singleFlight =
+        config().getJsonObject("singleFlight", new JsonObject()).getBoolean("enabled", true);
+    journaling = !reprocess && HarvestJournalPgUtil.isEnabled(config());
+    journalMaxAge = HarvestJournalPgUtil.getMaxAgeMillis(config());
+    journalStaleAfter = HarvestJournalPgUtil.getStaleMillis(config());
+    if (journaling) {
+      // timers of a verticle are cancelled when it is undeployed
+      vertx.setPeriodic(HarvestJournalPgUtil.getHeartbeatMillis(config()), id -> heartbeat());
+    }
+    aggregatorBatches.clear();
+    providerHosts.clear();
+    client = SharedWebClient.get(vertx);
+    scheduler = FetchScheduler.get(vertx, config());
+    rateLimiter = HostRateLimiter.get(vertx, config());
+    endpointCache = ServiceEndpointCache.get(vertx, config());
+    uploader = new ReportUploader(config(), this::sendReportRequest);
+    retryPolicy = new RetryPolicy(config());
 
     LOG.info("Tenant: {}, deployed WorkerVericle", token.getTenantId());
 
@@ -648,7 +1380,6 @@ public class WorkerVerticle extends AbstractVerticle {
     Promise<String> promise = Promise.promise();
     final String path = CONFIG_PATH;
     final String queryStr = String.format("(module = %s and configName = %s)", module, code);
-    WebClient client = WebClient.create(vertx);
     client
         .getAbs(okapiUrl + path)
         .setQueryParam(QUERY_PARAM, queryStr)
@@ -3,9 +3,9 @@ package org.olf.erm.usage.harvester.periodic;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
-import io.vertx.ext.web.client.WebClient;
 import java.util.Date;
 import org.folio.okapi.common.XOkapiHeaders;
+import org.olf.erm.usage.harvester.SharedWebClient;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.SchedulerException;
@@ -52,16 +52,48 @@ public class HarvestTenantJob implements Job {
       return;
     }
 
+    startHarvesting(vertxContext, tenantId)
+        .setHandler(
+            ar -> {
+              if (ar.failed()) {
+                failAndLog(promise, ar.cause().getMessage());
+                return;
+              }
+              log.info("Tenant: {}, job started", tenantId);
+              updateLastTriggeredAt(vertxContext, context.getFireTime())
+                  .setHandler(
+                      ar2 -> {
+                        if (ar2.succeeded()) {
+                          promise.complete();
+                        } else {
+                          failAndLog(
+                              promise,
+                              String.format(
+                                  "Tenant: %s, failed updating lastTriggeredAt: %s",
+                                  tenantId, ar2.cause().getMessage()));
+                        }
+                      });
+            });
+  }
+
+  /**
+   * Starts harvesting of all providers of a tenant by calling the start interface.
+   *
+   * @param vertxContext vert.x context
+   * @param tenantId tenant
+   * @return future failing with a message describing the error
+   */
+  public static Future<Void> startHarvesting(Context vertxContext, String tenantId) {
+    Promise<Void> promise = Promise.promise();
     String okapiUrl = vertxContext.config().getString("okapiUrl");
-    WebClient.create(vertxContext.owner())
+    SharedWebClient.get(vertxContext.owner())
         .getAbs(okapiUrl + "/erm-usage-harvester/start")
         .putHeader(XOkapiHeaders.TENANT, tenantId)
         .send(
             ar -> {
               if (ar.succeeded()) {
                 if (ar.result().statusCode() != 200) {
-                  failAndLog(
-                      promise,
+                  promise.fail(
                       String.format(
                           "Tenant: %s, error starting job, received %s %s from start interface: %s",
                           tenantId,
@@ -69,29 +101,16 @@ public class HarvestTenantJob implements Job {
                           ar.result().statusMessage(),
                           ar.result().bodyAsString()));
                 } else {
-                  log.info("Tenant: {}, job started", tenantId);
-                  updateLastTriggeredAt(vertxContext, context.getFireTime())
-                      .setHandler(
-                          ar2 -> {
-                            if (ar2.succeeded()) {
-                              promise.complete();
-                            } else {
-                              failAndLog(
-                                  promise,
-                                  String.format(
-                                      "Tenant: %s, failed updating lastTriggeredAt: %s",
-                                      tenantId, ar2.cause().getMessage()));
-                            }
-                          });
+                  promise.complete();
                 }
               } else {
-                failAndLog(
-                    promise,
+                promise.fail(
                     String.format(
                         "Tenant: %s, error connecting to start interface: %s",
                         tenantId, ar.cause().getMessage()));
               }
             });
+    return promise.future();
   }
 
   public void setTenantId(String tenantId) {
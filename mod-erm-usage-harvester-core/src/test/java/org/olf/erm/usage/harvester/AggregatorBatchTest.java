@@ -0,0 +1,91 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.folio.rest.jaxrs.model.AggregatorSetting;
+import org.junit.Test;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+
+public class AggregatorBatchTest {
+
+  private final AggregatorBatch batch = new AggregatorBatch("aggr1");
+  private final List<Promise<String>> responses = new ArrayList<>();
+
+  private final ServiceEndpoint endpoint =
+      new ServiceEndpoint() {
+        @Override
+        public boolean isValidReport(String report) {
+          return true;
+        }
+
+        @Override
+        public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
+          Promise<String> response = Promise.promise();
+          responses.add(response);
+          return response.future();
+        }
+      };
+
+  @Test
+  public void testCoalesceIdenticalFetches() {
+    ServiceEndpoint sep1 = batch.wrap(endpoint, "VENDOR1");
+    ServiceEndpoint sep2 = batch.wrap(endpoint, "VENDOR1");
+    ServiceEndpoint sep3 = batch.wrap(endpoint, "VENDOR2");
+
+    Future<String> f1 = sep1.fetchSingleReport("JR1", "2019-01-01", "2019-01-31");
+    Future<String> f2 = sep2.fetchSingleReport("JR1", "2019-01-01", "2019-01-31");
+    Future<String> f3 = sep3.fetchSingleReport("JR1", "2019-01-01", "2019-01-31");
+    Future<String> f4 = sep1.fetchSingleReport("JR1", "2019-02-01", "2019-02-28");
+    assertThat(responses).hasSize(3);
+
+    responses.forEach(p -> p.complete("report"));
+    assertThat(f1.result()).isEqualTo("report");
+    assertThat(f2.result()).isEqualTo("report");
+    assertThat(f3.succeeded()).isTrue();
+    assertThat(f4.succeeded()).isTrue();
+    assertThat(batch.getStatistics().getLong("coalesced")).isEqualTo(1);
+
+    // completed fetches are not cached
+    sep2.fetchSingleReport("JR1", "2019-01-01", "2019-01-31");
+    assertThat(responses).hasSize(4);
+  }
+
+  @Test
+  public void testSettingResolvedOnce() {
+    AtomicInteger requests = new AtomicInteger();
+    Promise<AggregatorSetting> setting = Promise.promise();
+
+    Future<AggregatorSetting> first =
+        batch.getSetting(
+            () -> {
+              requests.incrementAndGet();
+              return setting.future();
+            });
+    Future<AggregatorSetting> second =
+        batch.getSetting(() -> Future.failedFuture("should not be requested"));
+    setting.complete(new AggregatorSetting().withId("aggr1"));
+    Future<AggregatorSetting> third =
+        batch.getSetting(() -> Future.failedFuture("should not be requested"));
+
+    assertThat(requests.get()).isEqualTo(1);
+    assertThat(first.result().getId()).isEqualTo("aggr1");
+    assertThat(second.result().getId()).isEqualTo("aggr1");
+    assertThat(third.result().getId()).isEqualTo("aggr1");
+    assertThat(batch.getStatistics().getLong("settingRequests")).isEqualTo(1);
+  }
+
+  @Test
+  public void testSettingFailureNotCached() {
+    assertThat(batch.getSetting(() -> Future.failedFuture("down")).failed()).isTrue();
+    assertThat(
+            batch
+                .getSetting(() -> Future.succeededFuture(new AggregatorSetting().withId("aggr1")))
+                .succeeded())
+        .isTrue();
+  }
+}
@@ -0,0 +1,121 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpointContext;
+
+@RunWith(VertxUnitRunner.class)
+public class FetchSchedulerTest {
+
+  private final List<Promise<String>> started = new ArrayList<>();
+  private final List<String> startedProviders = new ArrayList<>();
+
+  private Future<String> schedule(FetchScheduler scheduler, String tenant, String provider) {
+    return scheduler.schedule(
+        tenant,
+        provider,
+        () -> {
+          Promise<String> promise = Promise.promise();
+          started.add(promise);
+          startedProviders.add(tenant + "/" + provider);
+          return promise.future();
+        });
+  }
+
+  @Test
+  public void testGlobalLimit() {
+    FetchScheduler scheduler = new FetchScheduler(2, 10, 10);
+    Future<String> first = schedule(scheduler, "t1", "p1");
+    schedule(scheduler, "t1", "p2");
+    schedule(scheduler, "t2", "p3");
+    assertThat(started).hasSize(2);
+    assertThat(scheduler.getStatistics().getInteger("queued")).isEqualTo(1);
+
+    started.get(0).complete("done");
+    assertThat(first.succeeded()).isTrue();
+    assertThat(first.result()).isEqualTo("done");
+    assertThat(started).hasSize(3);
+    assertThat(scheduler.getStatistics().getInteger("running")).isEqualTo(2);
+  }
+
+  @Test
+  public void testTenantAndProviderLimits() {
+    FetchScheduler scheduler = new FetchScheduler(10, 2, 1);
+    schedule(scheduler, "t1", "p1");
+    schedule(scheduler, "t1", "p1");
+    schedule(scheduler, "t1", "p2");
+    schedule(scheduler, "t1", "p3");
+    schedule(scheduler, "t2", "p1");
+    // t1/p1 and t1/p2 for tenant t1, t2/p1 for tenant t2
+    assertThat(started).hasSize(3);
+
+    started.get(0).fail("failed");
+    // t1/p3 got in turn for the tenant slot before t1/p1 had a free provider slot again
+    assertThat(started).hasSize(4);
+    assertThat(scheduler.getStatistics().getInteger("queued")).isEqualTo(1);
+  }
+
+  @Test
+  public void testTaskThrows() {
+    FetchScheduler scheduler = new FetchScheduler(1, 1, 1);
+    Future<String> failed =
+        scheduler.schedule(
+            "t1",
+            "p1",
+            () -> {
+              throw new IllegalStateException("boom");
+            });
+    assertThat(failed.failed()).isTrue();
+    schedule(scheduler, "t1", "p1");
+    assertThat(started).hasSize(1);
+  }
+
+  @Test
+  public void testProvidersTakeTurns() {
+    FetchScheduler scheduler = new FetchScheduler(1, 10, 10);
+    schedule(scheduler, "t1", "p1");
+    schedule(scheduler, "t1", "p1");
+    schedule(scheduler, "t1", "p1");
+    schedule(scheduler, "t1", "p2");
+    schedule(scheduler, "t2", "p1");
+    for (int i = 0; i < 4; i++) {
+      started.get(i).complete("done");
+    }
+    assertThat(startedProviders).containsExactly("t1/p1", "t1/p1", "t2/p1", "t1/p2", "t1/p1");
+    assertThat(scheduler.getStatistics().getInteger("queued")).isEqualTo(0);
+  }
+
+  @Test
+  public void testDroppedWithOwner(TestContext context) {
+    Vertx vertx = Vertx.vertx();
+    vertx.deployVerticle(
+        new AbstractVerticle() {
+          @Override
+          public void start() {
+            ServiceEndpointContext.init(vertx, this.context);
+          }
+        },
+        context.asyncAssertSuccess(
+            id -> {
+              FetchScheduler scheduler = FetchScheduler.get(vertx, null);
+              assertThat(FetchScheduler.get(vertx, null)).isSameAs(scheduler);
+              vertx.undeploy(
+                  id,
+                  context.asyncAssertSuccess(
+                      v -> {
+                        assertThat(FetchScheduler.get(vertx, null)).isNotSameAs(scheduler);
+                        vertx.close(context.asyncAssertSuccess());
+                      }));
+            }));
+  }
+}
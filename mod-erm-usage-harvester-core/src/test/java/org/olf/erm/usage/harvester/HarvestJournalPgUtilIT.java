@@ -0,0 +1,145 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.Timeout;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.folio.rest.persist.PostgresClient;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class HarvestJournalPgUtilIT {
+
+  private static final String TENANT = "journaltenant";
+  private static final String PROVIDER = "4b659cb9-e4bb-493d-ae30-5f5690c54802";
+  private static final String PROVIDER2 = "5c9e5f4d-3e44-4b48-9d0f-6a2b0e3c7b11";
+  private static Vertx vertx;
+
+  private final List<FetchItem> items =
+      Arrays.asList(
+          new FetchItem("JR1", "2018-01-01", "2018-01-31"),
+          new FetchItem("JR1", "2018-02-01", "2018-02-28", "existing", 2),
+          new FetchItem("DB1", "2018-01-01", "2018-01-31"));
+
+  @ClassRule public static EmbeddedPostgresRule pgRule = new EmbeddedPostgresRule(TENANT);
+
+  @Rule public Timeout timeout = Timeout.seconds(5);
+
+  @BeforeClass
+  public static void beforeClass() {
+    vertx = Vertx.vertx();
+  }
+
+  @Before
+  public void before(TestContext context) {
+    PostgresClient.getInstance(vertx, TENANT)
+        .execute(
+            "DELETE FROM " + PostgresClient.convertToPsqlStandard(TENANT) + ".journal",
+            context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testSaveClaimDelete(TestContext context) {
+    HarvestJournalPgUtil.save(vertx, TENANT, PROVIDER, items, 1000, "run1")
+        .compose(
+            saved -> {
+              context.verify(v -> assertThat(saved).containsExactlyElementsOf(items));
+              return HarvestJournalPgUtil.save(vertx, TENANT, PROVIDER, items, 1000, "run2");
+            })
+        .compose(
+            saved -> {
+              // recorded by run1
+              context.verify(v -> assertThat(saved).isEmpty());
+              return HarvestJournalPgUtil.save(vertx, TENANT, PROVIDER2, items, 1000, "run1");
+            })
+        .compose(v -> HarvestJournalPgUtil.claim(vertx, TENANT, PROVIDER, "run2", 2000, 1000))
+        .compose(
+            entries -> {
+              context.verify(v -> assertThat(entries).isEmpty());
+              return HarvestJournalPgUtil.claim(vertx, TENANT, PROVIDER, "run2", 3000, 2000);
+            })
+        .compose(
+            entries -> {
+              context.verify(
+                  v -> {
+                    List<FetchItem> fetchItems =
+                        entries.stream()
+                            .map(HarvestJournalEntry::toFetchItem)
+                            .collect(Collectors.toList());
+                    assertThat(fetchItems).containsExactlyInAnyOrderElementsOf(items);
+                    FetchItem existing =
+                        fetchItems.stream().filter(i -> i.existingId != null).findFirst().get();
+                    assertThat(existing.existingId).isEqualTo("existing");
+                    assertThat(existing.failedAttempts).isEqualTo(2);
+                    assertThat(entries).allMatch(e -> e.getCreated() == 1000);
+                    assertThat(entries).allMatch(e -> "run2".equals(e.getOwner()));
+                    assertThat(entries).allMatch(e -> e.getHeartbeat() == 3000);
+                  });
+              return HarvestJournalPgUtil.claim(vertx, TENANT, PROVIDER, "run3", 3500, 2000);
+            })
+        .compose(
+            entries -> {
+              // claimed by run2
+              context.verify(v -> assertThat(entries).isEmpty());
+              return HarvestJournalPgUtil.delete(
+                  vertx, TENANT, PROVIDER, Arrays.asList(items.get(0), items.get(1)));
+            })
+        .compose(v -> HarvestJournalPgUtil.claim(vertx, TENANT, PROVIDER, "run4", 5000, 4000))
+        .compose(
+            entries -> {
+              context.verify(
+                  v ->
+                      assertThat(entries.stream().map(HarvestJournalEntry::toFetchItem))
+                          .containsExactly(items.get(2)));
+              return HarvestJournalPgUtil.claim(vertx, TENANT, PROVIDER2, "run4", 5000, 4000);
+            })
+        .setHandler(context.asyncAssertSuccess(entries -> assertThat(entries).hasSize(3)));
+  }
+
+  @Test
+  public void testHeartbeat(TestContext context) {
+    HarvestJournalPgUtil.save(vertx, TENANT, PROVIDER, items, 1000, "run1")
+        .compose(v -> HarvestJournalPgUtil.save(vertx, TENANT, PROVIDER2, items, 1000, "run2"))
+        .compose(v -> HarvestJournalPgUtil.heartbeat(vertx, TENANT, "run1", 5000))
+        .compose(v -> HarvestJournalPgUtil.claim(vertx, TENANT, PROVIDER, "run3", 6000, 4000))
+        .compose(
+            entries -> {
+              context.verify(v -> assertThat(entries).isEmpty());
+              return HarvestJournalPgUtil.claim(vertx, TENANT, PROVIDER2, "run3", 6000, 4000);
+            })
+        .setHandler(context.asyncAssertSuccess(entries -> assertThat(entries).hasSize(3)));
+  }
+
+  @Test
+  public void testHasEntries(TestContext context) {
+    HarvestJournalPgUtil.hasEntries(vertx, TENANT, 0, Long.MAX_VALUE)
+        .compose(
+            has -> {
+              context.verify(v -> assertThat(has).isFalse());
+              return HarvestJournalPgUtil.save(vertx, TENANT, PROVIDER, items, 1000, "run1");
+            })
+        .compose(v -> HarvestJournalPgUtil.hasEntries(vertx, TENANT, 1000, 1001))
+        .compose(
+            has -> {
+              context.verify(v -> assertThat(has).isTrue());
+              return HarvestJournalPgUtil.hasEntries(vertx, TENANT, 1001, 1001);
+            })
+        .compose(
+            has -> {
+              context.verify(v -> assertThat(has).isFalse());
+              // heartbeat is not stale
+              return HarvestJournalPgUtil.hasEntries(vertx, TENANT, 1000, 1000);
+            })
+        .setHandler(context.asyncAssertSuccess(has -> assertThat(has).isFalse()));
+  }
+}
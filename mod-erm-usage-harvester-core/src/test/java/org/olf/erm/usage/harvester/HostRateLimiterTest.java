@@ -0,0 +1,136 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class HostRateLimiterTest {
+
+  private Vertx vertx;
+  private List<Promise<String>> started;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    started = new ArrayList<>();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  private Future<String> execute(HostRateLimiter limiter, String host) {
+    return limiter.execute(
+        host,
+        () -> {
+          Promise<String> promise = Promise.promise();
+          started.add(promise);
+          return promise.future();
+        });
+  }
+
+  @Test
+  public void testGetHost() {
+    assertThat(HostRateLimiter.getHost("https://SUSHI.example.com:8443/sushi/reports"))
+        .isEqualTo("sushi.example.com");
+    assertThat(HostRateLimiter.getHost("not a url")).isEqualTo("not a url");
+    assertThat(HostRateLimiter.getHost(null)).isEmpty();
+  }
+
+  @Test
+  public void testMaxConcurrent() {
+    HostRateLimiter limiter =
+        new HostRateLimiter(
+            vertx.getOrCreateContext(),
+            new JsonObject()
+                .put("default", new JsonObject().put("requestsPerSecond", 0))
+                .put("hosts", new JsonObject().put("a", new JsonObject().put("maxConcurrent", 1))));
+    Future<String> first = execute(limiter, "a");
+    execute(limiter, "a");
+    execute(limiter, "b");
+    assertThat(started).hasSize(2);
+    assertThat(limiter.getStatistics().getJsonObject("a").getInteger("queued")).isEqualTo(1);
+
+    started.get(0).complete("done");
+    assertThat(first.result()).isEqualTo("done");
+    assertThat(started).hasSize(3);
+  }
+
+  @Test
+  public void testRateLimit(TestContext context) {
+    HostRateLimiter limiter =
+        new HostRateLimiter(
+            vertx.getOrCreateContext(),
+            new JsonObject()
+                .put("default", new JsonObject().put("requestsPerSecond", 10).put("burst", 1)));
+    Async async = context.async();
+    long start = System.currentTimeMillis();
+    execute(limiter, "a").setHandler(context.asyncAssertSuccess());
+    execute(limiter, "a")
+        .setHandler(
+            context.asyncAssertSuccess(
+                s -> {
+                  assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(90);
+                  JsonObject stats = limiter.getStatistics().getJsonObject("a");
+                  assertThat(stats.getLong("requests")).isEqualTo(2);
+                  assertThat(stats.getLong("waitTimeMaxMs")).isGreaterThanOrEqualTo(90);
+                  async.complete();
+                }));
+    assertThat(started).hasSize(1);
+    started.get(0).complete("first");
+    vertx.setTimer(
+        200,
+        id -> {
+          assertThat(started).hasSize(2);
+          started.get(1).complete("second");
+        });
+  }
+
+  @Test
+  public void testTimerOutlivesVerticle(TestContext context) {
+    HostRateLimiter limiter =
+        new HostRateLimiter(
+            vertx.getOrCreateContext(),
+            new JsonObject()
+                .put("default", new JsonObject().put("requestsPerSecond", 10).put("burst", 1)));
+    Async async = context.async();
+    vertx.deployVerticle(
+        new AbstractVerticle() {
+          @Override
+          public void start() {
+            // takes the only token and arms the refill timer for the second fetch
+            limiter.execute("a", () -> Future.succeededFuture("first"));
+            limiter.execute("a", () -> Future.succeededFuture("second"));
+          }
+        },
+        context.asyncAssertSuccess(
+            id ->
+                vertx.undeploy(
+                    id,
+                    context.asyncAssertSuccess(
+                        v ->
+                            limiter
+                                .execute("a", () -> Future.succeededFuture("third"))
+                                .setHandler(
+                                    context.asyncAssertSuccess(
+                                        s -> {
+                                          assertThat(s).isEqualTo("third");
+                                          async.complete();
+                                        }))))));
+  }
+}
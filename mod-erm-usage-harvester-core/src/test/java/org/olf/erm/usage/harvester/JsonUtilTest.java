@@ -0,0 +1,26 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.junit.Test;
+
+public class JsonUtilTest {
+
+  @Test
+  public void testEncodeToBuffer() throws IOException {
+    CounterReport report =
+        Json.decodeValue(
+            Resources.toString(Resources.getResource("counterreport-sample.json"), Charsets.UTF_8),
+            CounterReport.class);
+
+    Buffer buffer = JsonUtil.encodeToBuffer(report);
+    assertThat(buffer.toJsonObject()).isEqualTo(JsonObject.mapFrom(report));
+  }
+}
@@ -0,0 +1,37 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class MonthCoverageTest {
+
+  @Test
+  public void testMissingMonths() {
+    MonthCoverage coverage = new MonthCoverage(YearMonth.of(2018, 11), YearMonth.of(2019, 3));
+    assertThat(coverage.size()).isEqualTo(5);
+    assertThat(coverage.add(YearMonth.of(2018, 12))).isTrue();
+    assertThat(coverage.add(YearMonth.of(2019, 2))).isTrue();
+    assertThat(coverage.add(YearMonth.of(2018, 10))).isFalse();
+    assertThat(coverage.add(YearMonth.of(2019, 4))).isFalse();
+
+    List<YearMonth> missing = new ArrayList<>();
+    coverage.forEachMissing(missing::add);
+    assertThat(missing)
+        .containsExactly(YearMonth.of(2018, 11), YearMonth.of(2019, 1), YearMonth.of(2019, 3));
+    assertThat(coverage.getCoveredMonths())
+        .containsExactly(YearMonth.of(2018, 12), YearMonth.of(2019, 2));
+  }
+
+  @Test
+  public void testEmptyRange() {
+    MonthCoverage coverage = new MonthCoverage(YearMonth.of(2019, 3), YearMonth.of(2019, 1));
+    assertThat(coverage.size()).isZero();
+    List<YearMonth> missing = new ArrayList<>();
+    coverage.forEachMissing(missing::add);
+    assertThat(missing).isEmpty();
+  }
+}
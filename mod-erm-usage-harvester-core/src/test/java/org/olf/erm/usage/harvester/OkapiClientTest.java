@@ -55,6 +55,7 @@ public class OkapiClientTest {
     cfg.put("okapiUrl", StringUtils.removeEnd(wireMockRule.url(""), "/"));
     cfg.put("testing", true);
     this.tenantsPath = cfg.getString("tenantsPath");
+    SharedWebClient.init(vertx, vertx.getOrCreateContext(), cfg);
     okapiClient = new OkapiClient(vertx, cfg);
   }
 
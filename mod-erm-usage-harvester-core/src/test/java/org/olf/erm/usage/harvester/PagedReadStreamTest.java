@@ -0,0 +1,123 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class PagedReadStreamTest {
+
+  private static final List<Integer> ITEMS =
+      IntStream.range(0, 7).boxed().collect(Collectors.toList());
+
+  private Vertx vertx;
+  private List<Integer> requestedOffsets;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    requestedOffsets = new ArrayList<>();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  private PagedReadStream<Integer> createStream(int pageSize) {
+    return new PagedReadStream<>(
+        vertx.getOrCreateContext(),
+        pageSize,
+        (offset, limit) -> {
+          requestedOffsets.add(offset);
+          int from = Math.min(offset, ITEMS.size());
+          int to = Math.min(offset + limit, ITEMS.size());
+          return Future.succeededFuture(ITEMS.subList(from, to));
+        });
+  }
+
+  @Test
+  public void testReadAllPages(TestContext context) {
+    List<Integer> received = new ArrayList<>();
+    Async async = context.async();
+    vertx.runOnContext(
+        v ->
+            createStream(3)
+                .endHandler(
+                    v2 -> {
+                      assertThat(received).isEqualTo(ITEMS);
+                      assertThat(requestedOffsets).isEqualTo(Arrays.asList(0, 3, 6));
+                      async.complete();
+                    })
+                .handler(received::add));
+  }
+
+  @Test
+  public void testLastPageFull(TestContext context) {
+    List<Integer> received = new ArrayList<>();
+    Async async = context.async();
+    vertx.runOnContext(
+        v ->
+            createStream(7)
+                .endHandler(
+                    v2 -> {
+                      assertThat(received).isEqualTo(ITEMS);
+                      assertThat(requestedOffsets).isEqualTo(Arrays.asList(0, 7));
+                      async.complete();
+                    })
+                .handler(received::add));
+  }
+
+  @Test
+  public void testPause(TestContext context) {
+    List<Integer> received = new ArrayList<>();
+    Async async = context.async();
+    vertx.runOnContext(
+        v -> {
+          PagedReadStream<Integer> stream = createStream(3);
+          stream.endHandler(v2 -> async.complete());
+          stream.handler(
+              i -> {
+                received.add(i);
+                stream.pause();
+              });
+          vertx.setTimer(
+              100,
+              t -> {
+                assertThat(received).containsExactly(0);
+                assertThat(requestedOffsets).containsExactly(0);
+                stream.handler(received::add);
+                stream.resume();
+              });
+        });
+  }
+
+  @Test
+  public void testPageFailed(TestContext context) {
+    Async async = context.async();
+    vertx.runOnContext(
+        v ->
+            new PagedReadStream<Integer>(
+                    vertx.getOrCreateContext(), 3, (offset, limit) -> Future.failedFuture("fail"))
+                .exceptionHandler(
+                    t -> {
+                      assertThat(t).hasMessage("fail");
+                      async.complete();
+                    })
+                .endHandler(v2 -> context.fail("stream should not end"))
+                .handler(i -> context.fail("no elements expected")));
+  }
+}
@@ -0,0 +1,128 @@
+package org.olf.erm.usage.harvester;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import java.util.ArrayList;
+import java.util.List;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.olf.erm.usage.harvester.ReportUploader.Upload;
+
+@RunWith(VertxUnitRunner.class)
+public class ReportUploaderTest {
+
+  @Rule public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+  private Vertx vertx;
+  private WebClient client;
+  private List<String> sent;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    client = WebClient.create(vertx);
+    sent = new ArrayList<>();
+    stubFor(any(urlPathMatching("/counter-reports/.*")).willReturn(aResponse().withStatus(201)));
+    stubFor(any(urlPathEqualTo("/counter-reports/fail")).willReturn(aResponse().withStatus(500)));
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  private Future<HttpResponse<Buffer>> send(HttpMethod method, String id, Buffer body) {
+    sent.add(id);
+    Promise<HttpResponse<Buffer>> promise = Promise.promise();
+    client.requestAbs(method, wireMockRule.url("/counter-reports/" + id)).sendBuffer(body, promise);
+    return promise.future();
+  }
+
+  private ReportUploader createUploader(int maxInFlight) {
+    return new ReportUploader(
+        new JsonObject()
+            .put(ReportUploader.CONFIG_KEY, new JsonObject().put("maxInFlight", maxInFlight)),
+        this::send);
+  }
+
+  @Test
+  public void testMaxInFlight(TestContext context) {
+    Async async = context.async();
+    vertx.runOnContext(
+        v -> {
+          ReportUploader uploader = createUploader(1);
+          Upload first = uploader.upload(HttpMethod.POST, new CounterReport().withId("1"));
+          Upload second = uploader.upload(HttpMethod.PUT, new CounterReport().withId("2"));
+          assertThat(sent).containsExactly("1");
+          assertThat(first.getDispatched().succeeded()).isTrue();
+          assertThat(second.getDispatched().isComplete()).isFalse();
+          assertThat(uploader.getStatistics().getInteger("queued")).isEqualTo(1);
+          second
+              .getDispatched()
+              .setHandler(
+                  context.asyncAssertSuccess(
+                      v2 -> {
+                        assertThat(first.getResponse().succeeded()).isTrue();
+                        assertThat(sent).containsExactly("1", "2");
+                      }));
+          second
+              .getResponse()
+              .setHandler(
+                  context.asyncAssertSuccess(
+                      r -> {
+                        assertThat(uploader.getStatistics().getLong("succeeded")).isEqualTo(2);
+                        async.complete();
+                      }));
+        });
+  }
+
+  @Test
+  public void testItemFailure(TestContext context) {
+    Async async = context.async();
+    vertx.runOnContext(
+        v -> {
+          ReportUploader uploader = createUploader(2);
+          Future<HttpResponse<Buffer>> failed =
+              uploader.upload(HttpMethod.POST, new CounterReport().withId("fail")).getResponse();
+          Future<HttpResponse<Buffer>> succeeded =
+              uploader.upload(HttpMethod.POST, new CounterReport().withId("2")).getResponse();
+          CompositeFuture.join(failed, succeeded)
+              .setHandler(
+                  ar -> {
+                    context.verify(
+                        v2 -> {
+                          assertThat(succeeded.succeeded()).isTrue();
+                          assertThat(failed.failed()).isTrue();
+                          assertThat(failed.cause()).hasMessageContaining("500");
+                          JsonObject stats = uploader.getStatistics();
+                          assertThat(stats.getLong("succeeded")).isEqualTo(1);
+                          assertThat(stats.getLong("failed")).isEqualTo(1);
+                        });
+                    async.complete();
+                  });
+        });
+  }
+}
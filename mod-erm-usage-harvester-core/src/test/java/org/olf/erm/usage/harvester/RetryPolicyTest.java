@@ -0,0 +1,165 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.VertxException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.impl.ConnectionBase;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import org.junit.Test;
+import org.olf.erm.usage.harvester.RetryPolicy.ErrorType;
+import org.olf.erm.usage.harvester.endpoints.SushiException;
+
+public class RetryPolicyTest {
+
+  private static SushiException sushiError(int statusCode, Integer... exceptionCodes) {
+    return new SushiException("error", statusCode, Arrays.asList(exceptionCodes));
+  }
+
+  @Test
+  public void testClassify() {
+    assertThat(RetryPolicy.classify(new SocketException("Connection reset")))
+        .isEqualTo(ErrorType.CONNECTION);
+    assertThat(RetryPolicy.classify(new Throwable("wrapped", new ConnectException("refused"))))
+        .isEqualTo(ErrorType.CONNECTION);
+    assertThat(RetryPolicy.classify(ConnectionBase.CLOSED_EXCEPTION))
+        .isEqualTo(ErrorType.CONNECTION);
+    assertThat(RetryPolicy.classify(new SocketTimeoutException("Read timed out")))
+        .isEqualTo(ErrorType.CONNECTION);
+    assertThat(RetryPolicy.classify(new TimeoutException("The timeout period elapsed")))
+        .isEqualTo(ErrorType.CONNECTION);
+    assertThat(RetryPolicy.classify(new UnknownHostException("sushi.example.org")))
+        .isEqualTo(ErrorType.PERMANENT);
+
+    assertThat(RetryPolicy.classify(sushiError(503))).isEqualTo(ErrorType.SERVER_ERROR);
+    assertThat(RetryPolicy.classify(new Throwable("wrapped", sushiError(502))))
+        .isEqualTo(ErrorType.SERVER_ERROR);
+    assertThat(RetryPolicy.classify(sushiError(404))).isEqualTo(ErrorType.PERMANENT);
+    assertThat(RetryPolicy.classify(sushiError(429))).isEqualTo(ErrorType.SERVICE_BUSY);
+    assertThat(RetryPolicy.classify(sushiError(400, 1011))).isEqualTo(ErrorType.SERVICE_BUSY);
+    assertThat(RetryPolicy.classify(sushiError(200, 3030, 1010)))
+        .isEqualTo(ErrorType.SERVICE_BUSY);
+    assertThat(RetryPolicy.classify(sushiError(200, 1030))).isEqualTo(ErrorType.PERMANENT);
+
+    // messages are not looked at
+    assertThat(
+            RetryPolicy.classify(
+                new SushiException(
+                    "https://sushi.example.org/?CustomerID=1000&Report=JR1 - 404 : Not Found",
+                    404,
+                    Collections.emptyList())))
+        .isEqualTo(ErrorType.PERMANENT);
+    assertThat(RetryPolicy.classify(new Throwable("HTTP 503 Service Unavailable")))
+        .isEqualTo(ErrorType.PERMANENT);
+    assertThat(RetryPolicy.classify(new Throwable((String) null)))
+        .isEqualTo(ErrorType.PERMANENT);
+  }
+
+  @Test
+  public void testShouldRetry() {
+    JsonObject retryConfig =
+        new JsonObject().put("connection", new JsonObject().put("maxAttempts", 2));
+    RetryPolicy policy = new RetryPolicy(new JsonObject().put("retry", retryConfig));
+
+    assertThat(policy.shouldRetry(ErrorType.CONNECTION, 1)).isTrue();
+    assertThat(policy.shouldRetry(ErrorType.CONNECTION, 2)).isFalse();
+    assertThat(policy.shouldRetry(ErrorType.SERVICE_BUSY, 4)).isTrue();
+    assertThat(policy.shouldRetry(ErrorType.SERVICE_BUSY, 5)).isFalse();
+    assertThat(policy.shouldRetry(ErrorType.PERMANENT, 1)).isFalse();
+
+    JsonObject stats = policy.getStatistics();
+    assertThat(stats.getJsonObject("connection").getLong("retried")).isEqualTo(1);
+    assertThat(stats.getJsonObject("connection").getLong("exhausted")).isEqualTo(1);
+    assertThat(stats.getJsonObject("serviceBusy").getLong("exhausted")).isEqualTo(1);
+  }
+
+  @Test
+  public void testShouldRetryDisabled() {
+    RetryPolicy policy =
+        new RetryPolicy(new JsonObject().put("retry", new JsonObject().put("enabled", false)));
+
+    assertThat(policy.shouldRetry(ErrorType.CONNECTION, 1)).isFalse();
+    assertThat(policy.shouldRetry(ErrorType.SERVER_ERROR, 1)).isFalse();
+    assertThat(policy.shouldRetry(ErrorType.REJECTED, 1)).isFalse();
+  }
+
+  @Test
+  public void testShouldRetryRejected() {
+    JsonObject retryConfig =
+        new JsonObject().put("rejected", new JsonObject().put("maxAttempts", 3));
+    RetryPolicy policy = new RetryPolicy(new JsonObject().put("retry", retryConfig));
+
+    assertThat(policy.shouldRetry(ErrorType.REJECTED, 2)).isTrue();
+    assertThat(policy.shouldRetry(ErrorType.REJECTED, 3)).isFalse();
+    assertThat(policy.getStatistics().getJsonObject("rejected").getLong("exhausted"))
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testClassifyRejected() {
+    assertThat(RetryPolicy.classify(new RejectedExecutionException("Executor cs50 saturated")))
+        .isEqualTo(ErrorType.REJECTED);
+    assertThat(
+            RetryPolicy.classify(
+                new Throwable("wrapped", new RejectedExecutionException("saturated"))))
+        .isEqualTo(ErrorType.REJECTED);
+  }
+
+  @Test
+  public void testGetDelay() {
+    JsonObject retryConfig =
+        new JsonObject()
+            .put(
+                "serverError",
+                new JsonObject().put("initialDelayMs", 1000).put("maxDelayMs", 5000));
+    RetryPolicy policy = new RetryPolicy(new JsonObject().put("retry", retryConfig));
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(policy.getDelay(ErrorType.SERVER_ERROR, 1)).isBetween(500L, 1000L);
+      assertThat(policy.getDelay(ErrorType.SERVER_ERROR, 2)).isBetween(1000L, 2000L);
+      assertThat(policy.getDelay(ErrorType.SERVER_ERROR, 3)).isBetween(2000L, 4000L);
+      assertThat(policy.getDelay(ErrorType.SERVER_ERROR, 4)).isBetween(2500L, 5000L);
+      assertThat(policy.getDelay(ErrorType.SERVER_ERROR, 40)).isBetween(2500L, 5000L);
+    }
+  }
+
+  @Test
+  public void testClassifyIOException() {
+    assertThat(
+            RetryPolicy.classify(
+                new IOException("unexpected end of stream", new EOFException("no response"))))
+        .isEqualTo(ErrorType.CONNECTION);
+    // by type, not by message
+    assertThat(RetryPolicy.classify(new IOException("unexpected end of stream")))
+        .isEqualTo(ErrorType.PERMANENT);
+    assertThat(RetryPolicy.classify(new VertxException("Connection was closed")))
+        .isEqualTo(ErrorType.PERMANENT);
+  }
+
+  @Test
+  public void testClassifyTlsError() {
+    assertThat(
+            RetryPolicy.classify(
+                new SSLHandshakeException("Remote host closed connection during handshake")
+                    .initCause(new EOFException("SSL peer shut down incorrectly"))))
+        .isEqualTo(ErrorType.PERMANENT);
+    assertThat(RetryPolicy.classify(new SSLPeerUnverifiedException("peer not authenticated")))
+        .isEqualTo(ErrorType.PERMANENT);
+    assertThat(
+            RetryPolicy.classify(
+                new SocketException("wrapped").initCause(new CertificateException("expired"))))
+        .isEqualTo(ErrorType.PERMANENT);
+  }
+}
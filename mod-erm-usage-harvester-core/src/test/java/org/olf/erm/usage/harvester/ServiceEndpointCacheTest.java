@@ -0,0 +1,105 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.folio.rest.jaxrs.model.AggregatorSetting;
+import org.folio.rest.jaxrs.model.HarvestingConfig;
+import org.folio.rest.jaxrs.model.SushiConfig;
+import org.folio.rest.jaxrs.model.SushiCredentials;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+import org.olf.erm.usage.harvester.endpoints.Test1Provider;
+
+public class ServiceEndpointCacheTest {
+
+  private final AtomicInteger created = new AtomicInteger();
+  private UsageDataProvider provider;
+
+  @Before
+  public void setUp() {
+    created.set(0);
+    provider = createProvider("p1", "http://localhost/sushi");
+  }
+
+  private static UsageDataProvider createProvider(String id, String url) {
+    return new UsageDataProvider()
+        .withId(id)
+        .withHarvestingConfig(
+            new HarvestingConfig()
+                .withSushiConfig(new SushiConfig().withServiceType("test1").withServiceUrl(url)))
+        .withSushiCredentials(new SushiCredentials().withCustomerId("cust"));
+  }
+
+  private ServiceEndpoint create(UsageDataProvider p, AggregatorSetting as) {
+    created.incrementAndGet();
+    return new Test1Provider().create(p, as, null);
+  }
+
+  @Test
+  public void testReuse() {
+    ServiceEndpointCache cache = new ServiceEndpointCache(10);
+    ServiceEndpoint sep1 = cache.get(provider, null, () -> create(provider, null));
+    UsageDataProvider sameProvider = createProvider("p1", "http://localhost/sushi");
+    ServiceEndpoint sep2 = cache.get(sameProvider, null, () -> create(sameProvider, null));
+
+    assertThat(sep2).isSameAs(sep1);
+    assertThat(created.get()).isEqualTo(1);
+    assertThat(cache.getStatistics().getLong("hits")).isEqualTo(1);
+    assertThat(cache.getStatistics().getLong("misses")).isEqualTo(1);
+  }
+
+  @Test
+  public void testConfigChange() {
+    ServiceEndpointCache cache = new ServiceEndpointCache(10);
+    ServiceEndpoint sep1 = cache.get(provider, null, () -> create(provider, null));
+
+    provider.getSushiCredentials().setCustomerId("cust2");
+    ServiceEndpoint sep2 = cache.get(provider, null, () -> create(provider, null));
+    assertThat(sep2).isNotSameAs(sep1);
+
+    AggregatorSetting as = new AggregatorSetting().withServiceUrl("http://localhost/aggr");
+    ServiceEndpoint sep3 = cache.get(provider, as, () -> create(provider, as));
+    assertThat(sep3).isNotSameAs(sep2);
+    assertThat(created.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void testEviction() {
+    ServiceEndpointCache cache = new ServiceEndpointCache(2);
+    UsageDataProvider p2 = createProvider("p2", "http://localhost/sushi");
+    UsageDataProvider p3 = createProvider("p3", "http://localhost/sushi");
+
+    cache.get(provider, null, () -> create(provider, null));
+    cache.get(p2, null, () -> create(p2, null));
+    // access p1, so p2 is the least recently used one
+    cache.get(provider, null, () -> create(provider, null));
+    cache.get(p3, null, () -> create(p3, null));
+    assertThat(created.get()).isEqualTo(3);
+
+    cache.get(provider, null, () -> create(provider, null));
+    assertThat(created.get()).isEqualTo(3);
+    cache.get(p2, null, () -> create(p2, null));
+    assertThat(created.get()).isEqualTo(4);
+    assertThat(cache.getStatistics().getInteger("size")).isEqualTo(2);
+  }
+
+  @Test
+  public void testDisabled() {
+    ServiceEndpointCache cache = new ServiceEndpointCache(0);
+    cache.get(provider, null, () -> create(provider, null));
+    cache.get(provider, null, () -> create(provider, null));
+    assertThat(created.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testNullNotCached() {
+    ServiceEndpointCache cache = new ServiceEndpointCache(10);
+    assertThat(cache.get(provider, null, () -> null)).isNull();
+    cache.get(provider, null, () -> create(provider, null));
+    assertThat(created.get()).isEqualTo(1);
+    assertThat(cache.getStatistics().getInteger("size")).isEqualTo(1);
+  }
+}
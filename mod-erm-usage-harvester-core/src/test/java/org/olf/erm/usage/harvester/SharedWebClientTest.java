@@ -0,0 +1,86 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.client.WebClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class SharedWebClientTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testSameInstancePerVertx() {
+    JsonObject config =
+        new JsonObject().put("okapiClient", new JsonObject().put("maxPoolSize", 5));
+    WebClient client1 = SharedWebClient.init(vertx, vertx.getOrCreateContext(), config);
+    WebClient client2 = SharedWebClient.init(vertx, vertx.getOrCreateContext(), new JsonObject());
+    assertThat(client1).isSameAs(client2);
+    assertThat(SharedWebClient.get(vertx)).isSameAs(client1);
+
+    JsonObject statistics = SharedWebClient.getStatistics(vertx);
+    assertThat(statistics.getInteger("maxPoolSize")).isEqualTo(5);
+    assertThat(statistics.getInteger("openConnections")).isEqualTo(0);
+  }
+
+  @Test
+  public void testStatisticsWithoutClient() {
+    assertThat(SharedWebClient.getStatistics(vertx).isEmpty()).isTrue();
+    assertThatThrownBy(() -> SharedWebClient.get(vertx)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void testClientOutlivesVerticles(TestContext context) {
+    SharedWebClient.init(vertx, vertx.getOrCreateContext(), new JsonObject());
+    vertx.deployVerticle(
+        new AbstractVerticle() {
+          @Override
+          public void start() {
+            SharedWebClient.get(vertx);
+          }
+        },
+        context.asyncAssertSuccess(
+            id ->
+                vertx.undeploy(
+                    id,
+                    context.asyncAssertSuccess(
+                        v ->
+                            assertThat(SharedWebClient.getStatistics(vertx).isEmpty())
+                                .isFalse()))));
+  }
+
+  @Test
+  public void testInitOnOtherContext(TestContext context) {
+    Context owner = vertx.getOrCreateContext();
+    vertx.deployVerticle(
+        new AbstractVerticle() {
+          @Override
+          public void start() {
+            assertThatThrownBy(() -> SharedWebClient.init(vertx, owner, new JsonObject()))
+                .isInstanceOf(IllegalStateException.class);
+          }
+        },
+        context.asyncAssertSuccess());
+  }
+}
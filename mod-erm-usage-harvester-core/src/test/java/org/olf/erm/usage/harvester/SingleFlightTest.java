@@ -0,0 +1,128 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.folio.rest.jaxrs.model.Aggregator;
+import org.folio.rest.jaxrs.model.HarvestingConfig;
+import org.folio.rest.jaxrs.model.SushiConfig;
+import org.folio.rest.jaxrs.model.SushiCredentials;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class SingleFlightTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testShareRunningRequest() {
+    SingleFlight singleFlight = new SingleFlight();
+    List<Promise<String>> requests = new ArrayList<>();
+    AtomicInteger count = new AtomicInteger();
+
+    Future<String> f1 = singleFlight.execute("a", () -> request(requests, count));
+    Future<String> f2 = singleFlight.execute("a", () -> request(requests, count));
+    Future<String> f3 = singleFlight.execute("b", () -> request(requests, count));
+    assertThat(count.get()).isEqualTo(2);
+    assertThat(singleFlight.getStatistics().getInteger("inFlight")).isEqualTo(2);
+
+    requests.forEach(p -> p.complete("result"));
+    assertThat(f1.result()).isEqualTo("result");
+    assertThat(f2.result()).isEqualTo("result");
+    assertThat(f3.result()).isEqualTo("result");
+    assertThat(singleFlight.getStatistics().getLong("shared")).isEqualTo(1);
+    assertThat(singleFlight.getStatistics().getInteger("inFlight")).isEqualTo(0);
+
+    // completed requests are not cached
+    singleFlight.execute("a", () -> request(requests, count));
+    assertThat(count.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void testCompleteOnCallerContext(TestContext context) {
+    SingleFlight singleFlight = new SingleFlight();
+    Promise<String> request = Promise.promise();
+    Context ctx1 = vertx.getOrCreateContext();
+    Context ctx2 = vertx.getOrCreateContext();
+    Async async = context.async(2);
+
+    ctx1.runOnContext(
+        v -> {
+          singleFlight
+              .execute("a", request::future)
+              .setHandler(
+                  ar -> {
+                    context.assertTrue(Vertx.currentContext() == ctx1);
+                    async.countDown();
+                  });
+          ctx2.runOnContext(
+              v2 -> {
+                singleFlight
+                    .execute("a", () -> Future.failedFuture("should not be requested"))
+                    .setHandler(
+                        ar -> {
+                          context.assertTrue(Vertx.currentContext() == ctx2);
+                          context.assertEquals("result", ar.result());
+                          async.countDown();
+                        });
+                ctx1.runOnContext(v3 -> request.complete("result"));
+              });
+        });
+  }
+
+  @Test
+  public void testEndpointKey() {
+    UsageDataProvider provider1 = createProvider("tenant1-provider");
+    UsageDataProvider provider2 = createProvider("tenant2-provider");
+    assertThat(SingleFlightServiceEndpoint.getEndpointKey(provider1, null))
+        .isEqualTo(SingleFlightServiceEndpoint.getEndpointKey(provider2, null));
+
+    provider2.getSushiCredentials().setCustomerId("other");
+    assertThat(SingleFlightServiceEndpoint.getEndpointKey(provider1, null))
+        .isNotEqualTo(SingleFlightServiceEndpoint.getEndpointKey(provider2, null));
+  }
+
+  private static Future<String> request(List<Promise<String>> requests, AtomicInteger count) {
+    count.incrementAndGet();
+    Promise<String> promise = Promise.promise();
+    requests.add(promise);
+    return promise.future();
+  }
+
+  private static UsageDataProvider createProvider(String label) {
+    return new UsageDataProvider()
+        .withId(label)
+        .withLabel(label)
+        .withHarvestingConfig(
+            new HarvestingConfig()
+                .withReportRelease(4)
+                .withAggregator(new Aggregator())
+                .withSushiConfig(
+                    new SushiConfig().withServiceType("cs41").withServiceUrl("http://sushi")))
+        .withSushiCredentials(
+            new SushiCredentials().withCustomerId("customer").withRequestorId("requestor"));
+  }
+}
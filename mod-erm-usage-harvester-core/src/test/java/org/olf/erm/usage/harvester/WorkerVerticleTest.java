@@ -38,7 +38,6 @@ import io.vertx.ext.unit.junit.VertxUnitRunner;
 import java.io.IOException;
 import java.time.YearMonth;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -59,6 +58,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpointContext;
 
 @RunWith(VertxUnitRunner.class)
 public class WorkerVerticleTest {
@@ -101,9 +101,13 @@ public class WorkerVerticleTest {
   @Before
   public void setup(TestContext context) {
     vertx = Vertx.vertx();
+    ServiceEndpointContext.init(vertx, vertx.getOrCreateContext());
     JsonObject cfg = new JsonObject(deployCfg);
     cfg.put("okapiUrl", StringUtils.removeEnd(wireMockRule.url(""), "/"));
     cfg.put("testing", true);
+    // the journal needs Postgres, see HarvestJournalPgUtilIT
+    cfg.put("journal", new JsonObject().put("enabled", false));
+    SharedWebClient.init(vertx, vertx.getOrCreateContext(), cfg);
     stubFor(
         get(urlPathEqualTo("/configurations/entries"))
             .willReturn(aResponse().withStatus(404).withFault(Fault.EMPTY_RESPONSE)));
@@ -343,18 +347,17 @@ public class WorkerVerticleTest {
   @Test
   public void postReportNoExisting(TestContext context) {
     final String url = reportsPath;
-    stubFor(
-        get(urlPathEqualTo(url))
-            .willReturn(aResponse().withStatus(200).withBodyFile("counter-reports-empty.json")));
     stubFor(post(urlEqualTo(url)).willReturn(aResponse().withStatus(201)));
 
     Async async = context.async();
     harvester
-        .postReport(cr)
+        .postReport(cr, new FetchItem("JR1", "2018-01-01", "2018-01-31"))
+        .getResponse()
         .setHandler(
             ar -> {
               if (ar.succeeded()) {
                 verify(postRequestedFor(urlEqualTo(url)));
+                verify(0, getRequestedFor(urlPathEqualTo(url)));
                 async.complete();
               } else {
                 context.fail(ar.cause());
@@ -365,19 +368,19 @@ public class WorkerVerticleTest {
   @Test
   public void postReportExisting(TestContext context) {
     final String url = reportsPath;
-    final String urlId = url + "/43d7e87c-fb32-4ce2-81f9-11fe75c29bbb";
-    stubFor(
-        get(urlPathEqualTo(url))
-            .willReturn(aResponse().withStatus(200).withBodyFile("counter-reports-one.json")));
+    final String existingId = "43d7e87c-fb32-4ce2-81f9-11fe75c29bbb";
+    final String urlId = url + "/" + existingId;
     stubFor(put(urlEqualTo(urlId)).willReturn(aResponse().withStatus(201)));
 
     Async async = context.async();
     harvester
-        .postReport(cr)
+        .postReport(cr, new FetchItem("JR1", "2018-01-01", "2018-01-31", existingId, 2))
+        .getResponse()
         .setHandler(
             ar -> {
               if (ar.succeeded()) {
                 verify(putRequestedFor(urlEqualTo(urlId)));
+                verify(0, getRequestedFor(urlPathEqualTo(url)));
                 async.complete();
               } else {
                 context.fail(ar.cause());
@@ -452,6 +455,35 @@ public class WorkerVerticleTest {
             });
   }
 
+  @Test
+  public void testGetServiceEndpointAggregatorSettingRequestedOnce(TestContext context)
+      throws DecodeException, IOException {
+    String json =
+        Resources.toString(
+            Resources.getResource("__files/usage-data-provider.json"), Charsets.UTF_8);
+    UsageDataProvider provider1 = Json.decodeValue(json, UsageDataProvider.class);
+    UsageDataProvider provider2 = Json.decodeValue(json, UsageDataProvider.class);
+    provider1.getHarvestingConfig().setHarvestVia(HarvestVia.AGGREGATOR);
+    provider2.getHarvestingConfig().setHarvestVia(HarvestVia.AGGREGATOR);
+    provider2.setId(UUID.randomUUID().toString());
+    String settingPath =
+        aggregatorPath + "/" + provider1.getHarvestingConfig().getAggregator().getId();
+    stubFor(
+        get(urlEqualTo(settingPath))
+            .willReturn(aResponse().withBodyFile("aggregator-setting.json")));
+
+    Async async = context.async();
+    harvester
+        .getServiceEndpoint(provider1)
+        .compose(sep -> harvester.getServiceEndpoint(provider2))
+        .setHandler(
+            ar -> {
+              assertThat(ar.succeeded()).isTrue();
+              verify(1, getRequestedFor(urlEqualTo(settingPath)));
+              async.complete();
+            });
+  }
+
   @Test
   public void testGetServiceEndpointAggregatorNull(TestContext context)
       throws DecodeException, IOException {
@@ -499,35 +531,63 @@ public class WorkerVerticleTest {
   private CounterReports createCounterSampleReports() {
     UUID uuid = UUID.randomUUID();
     List<CounterReport> reports =
-        Stream.iterate(YearMonth.of(2017, 12), m -> m.plusMonths(1))
-            .limit(3)
-            .map(
-                m ->
-                    new CounterReport()
-                        .withReport(new Report())
-                        .withProviderId(uuid.toString())
-                        .withYearMonth(m.toString()))
+        Stream.of("JR1", "JR2", "JR3")
+            .flatMap(
+                reportName ->
+                    Stream.iterate(YearMonth.of(2017, 12), m -> m.plusMonths(1))
+                        .limit(3)
+                        .map(
+                            m ->
+                                new CounterReport()
+                                    .withReport(new Report())
+                                    .withProviderId(uuid.toString())
+                                    .withReportName(reportName)
+                                    .withYearMonth(m.toString())))
             .collect(Collectors.toList());
     return new CounterReports().withCounterReports(reports);
   }
 
   @Test
   public void testGetValidMonths(TestContext context) {
-    String encode = Json.encodePrettily(createCounterSampleReports());
+    CounterReports reports = createCounterSampleReports();
+    reports
+        .getCounterReports()
+        .add(new CounterReport().withReportName("JR1").withYearMonth("2018-03"));
+    reports
+        .getCounterReports()
+        .add(
+            new CounterReport()
+                .withReportName("JR1")
+                .withYearMonth("2018-04")
+                .withFailedAttempts(1));
+    String encode = Json.encodePrettily(reports);
     stubFor(
         get(urlPathEqualTo("/counter-reports"))
             .willReturn(aResponse().withStatus(200).withBody(encode)));
 
     Async async = context.async();
     harvester
-        .getValidMonths("providerId", "JR1", YearMonth.of(2017, 12), YearMonth.of(2018, 2))
+        .getValidMonths("providerId", YearMonth.of(2017, 12), YearMonth.of(2018, 4))
         .setHandler(
             ar -> {
               assertThat(ar.succeeded()).isTrue();
-              assertThat(ar.result())
+              assertThat(ar.result()).containsOnlyKeys("JR1", "JR2", "JR3");
+              assertThat(ar.result().get("JR1").getCoveredMonths())
                   .isEqualTo(
                       Arrays.asList(
-                          YearMonth.of(2017, 12), YearMonth.of(2018, 1), YearMonth.of(2018, 2)));
+                          YearMonth.of(2017, 12),
+                          YearMonth.of(2018, 1),
+                          YearMonth.of(2018, 2),
+                          YearMonth.of(2018, 3)));
+              assertThat(ar.result().get("JR2").getCoveredMonths()).hasSize(3);
+              verify(
+                  exactly(1),
+                  getRequestedFor(urlPathEqualTo("/counter-reports"))
+                      .withQueryParam(
+                          "query",
+                          equalTo(
+                              "(providerId=providerId AND yearMonth>=2017-12 AND "
+                                  + "yearMonth<=2018-04)")));
               async.complete();
             });
   }
@@ -537,7 +597,7 @@ public class WorkerVerticleTest {
     stubFor(get(urlPathEqualTo("/counter-reports")).willReturn(aResponse().withStatus(500)));
     Async async = context.async();
     harvester
-        .getValidMonths("providerId", "JR1", YearMonth.of(2017, 12), YearMonth.of(2018, 2))
+        .getValidMonths("providerId", YearMonth.of(2017, 12), YearMonth.of(2018, 2))
         .setHandler(
             ar -> {
               assertThat(ar.failed()).isTrue();
@@ -588,7 +648,7 @@ public class WorkerVerticleTest {
               assertThat(ar.result().contains(new FetchItem("JR1", begin, end))).isTrue();
               assertThat(ar.result().contains(new FetchItem("JR2", begin, end))).isTrue();
               assertThat(ar.result().contains(new FetchItem("JR3", begin, end))).isTrue();
-              verify(exactly(3), getRequestedFor(urlPathEqualTo("/counter-reports")));
+              verify(exactly(1), getRequestedFor(urlPathEqualTo("/counter-reports")));
               async.complete();
             });
   }
@@ -596,31 +656,20 @@ public class WorkerVerticleTest {
   @Test
   public void testFetchAndPostReports(TestContext context) {
     UsageDataProvider provider = createSampleUsageDataProvider();
+    CounterReports existingReports = createCounterSampleReports();
+    existingReports
+        .getCounterReports()
+        .add(
+            new CounterReport()
+                .withId("43d7e87c-fb32-4ce2-81f9-11fe75c29bbb")
+                .withReportName("JR1")
+                .withYearMonth("2018-03")
+                .withFailedAttempts(1));
 
     stubFor(
         get(urlPathEqualTo("/counter-reports"))
             .willReturn(
-                aResponse()
-                    .withStatus(200)
-                    .withBody(Json.encodePrettily(createCounterSampleReports()))));
-    stubFor(
-        get(urlEqualTo(
-                "/counter-reports?query=%28providerId%3D97329ea7-f351-458a-a460-71aa6db75e35%20"
-                    + "AND%20yearMonth%3D2018-03%20AND%20reportName%3D%3DJR1%29&tiny=true"))
-            .willReturn(
-                aResponse()
-                    .withStatus(200)
-                    .withBody(
-                        Json.encodePrettily(
-                            new CounterReports()
-                                .withCounterReports(
-                                    Collections.singletonList(new CounterReport()))))));
-    stubFor(
-        get(urlEqualTo(
-                "/counter-reports?query=%28providerId%3D97329ea7-f351-458a-a460-71aa6db75e35%20"
-                    + "AND%20yearMonth%3D2018-03%20AND%20reportName%3D%3DJR2%29&tiny=true"))
-            .willReturn(
-                aResponse().withStatus(200).withBody(Json.encodePrettily(new CounterReports()))));
+                aResponse().withStatus(200).withBody(Json.encodePrettily(existingReports))));
     stubFor(post(urlPathEqualTo("/counter-reports")).willReturn(aResponse().withStatus(201)));
     stubFor(put(urlPathMatching("/counter-reports/.*")).willReturn(aResponse().withStatus(204)));
 
@@ -631,9 +680,12 @@ public class WorkerVerticleTest {
         .setHandler(
             ar -> {
               assertThat(ar.succeeded()).isTrue();
-              verify(9, getRequestedFor(urlPathEqualTo("/counter-reports")));
-              verify(1, postRequestedFor(urlPathEqualTo("/counter-reports")));
-              verify(1, putRequestedFor(urlPathMatching("/counter-reports/.*")));
+              verify(1, getRequestedFor(urlPathEqualTo("/counter-reports")));
+              verify(5, postRequestedFor(urlPathEqualTo("/counter-reports")));
+              verify(
+                  1,
+                  putRequestedFor(
+                      urlPathEqualTo("/counter-reports/43d7e87c-fb32-4ce2-81f9-11fe75c29bbb")));
               async.complete();
             });
   }
@@ -718,4 +770,23 @@ public class WorkerVerticleTest {
               }
             });
   }
+
+  @Test
+  public void testGroupIntoRanges() {
+    List<FetchItem> items =
+        Arrays.asList(
+            new FetchItem("JR1", "2018-01-01", "2018-01-31"),
+            new FetchItem("JR1", "2018-02-01", "2018-02-28"),
+            new FetchItem("JR1", "2018-03-01", "2018-03-31"),
+            new FetchItem("JR1", "2018-05-01", "2018-05-31"),
+            new FetchItem("JR2", "2018-06-01", "2018-06-30"),
+            new FetchItem("JR2", "2018-07-01", "2018-07-31"));
+
+    assertThat(WorkerVerticle.groupIntoRanges(items, 12))
+        .containsExactly(items.subList(0, 3), items.subList(3, 4), items.subList(4, 6));
+    assertThat(WorkerVerticle.groupIntoRanges(items, 2))
+        .containsExactly(
+            items.subList(0, 2), items.subList(2, 3), items.subList(3, 4), items.subList(4, 6));
+    assertThat(WorkerVerticle.groupIntoRanges(items, 1)).hasSize(6);
+  }
 }
@@ -17,7 +17,8 @@ public class Test1Provider implements ServiceEndpointProvider {
   }
 
   @Override
-  public ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  public ServiceEndpoint create(
+      UsageDataProvider provider, AggregatorSetting aggregator, ServiceEndpointContext context) {
     return new ServiceEndpoint() {
 
       @Override
@@ -22,7 +22,8 @@ public class Test2Provider implements ServiceEndpointProvider {
   }
 
   @Override
-  public ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  public ServiceEndpoint create(
+      UsageDataProvider provider, AggregatorSetting aggregator, ServiceEndpointContext context) {
     return new ServiceEndpoint() {
 
       @Override
@@ -33,6 +33,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.olf.erm.usage.harvester.EmbeddedPostgresRule;
+import org.olf.erm.usage.harvester.SharedWebClient;
 import org.quartz.JobBuilder;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
@@ -79,6 +80,7 @@ public class HarvestTenantJobIT {
     vertx = Vertx.vertx();
     vertxContext = vertx.getOrCreateContext();
     vertxContext.config().put("okapiUrl", "http://localhost:" + wireMockRule.port());
+    SharedWebClient.init(vertx, vertxContext, vertxContext.config());
 
     PeriodicConfigPgUtil.upsert(vertxContext, TENANT, config)
         .setHandler(context.asyncAssertSuccess());
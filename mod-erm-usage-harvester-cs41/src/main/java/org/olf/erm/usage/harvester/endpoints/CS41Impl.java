@@ -1,34 +1,29 @@
 package org.olf.erm.usage.harvester.endpoints;
 
-import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
-import io.vertx.core.Vertx;
-import java.net.InetSocketAddress;
+import java.io.ByteArrayInputStream;
+import java.net.Proxy;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.List;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.xml.bind.JAXBException;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
-import javax.xml.namespace.QName;
-import javax.xml.ws.BindingProvider;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.cxf.endpoint.Client;
-import org.apache.cxf.ext.logging.LoggingInInterceptor;
-import org.apache.cxf.frontend.ClientProxy;
-import org.apache.cxf.helpers.CastUtils;
-import org.apache.cxf.interceptor.Fault;
-import org.apache.cxf.message.Message;
-import org.apache.cxf.phase.AbstractPhaseInterceptor;
-import org.apache.cxf.phase.Phase;
-import org.apache.cxf.transport.http.HTTPConduit;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.niso.schemas.counter.Report;
 import org.niso.schemas.sushi.CustomerReference;
-import org.niso.schemas.sushi.Exception;
 import org.niso.schemas.sushi.Range;
 import org.niso.schemas.sushi.ReportDefinition;
 import org.niso.schemas.sushi.ReportDefinition.Filters;
@@ -38,14 +33,17 @@ import org.niso.schemas.sushi.counter.CounterReportResponse;
 import org.olf.erm.usage.counter41.Counter4Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sushiservice.SushiService;
-import sushiservice.SushiServiceInterface;
 
 public class CS41Impl implements ServiceEndpoint {
 
   private UsageDataProvider provider;
-  private SushiServiceInterface port;
+  private String serviceUrl;
+  private Proxy proxy;
+  private String archiveKey;
   private static final Logger LOG = LoggerFactory.getLogger(CS41Impl.class);
+  private static final String EXECUTOR = "cs41";
+  private static final ReportConverter CONVERTER =
+      new ReportConverter(Counter4Utils.createObjectMapper());
 
   private ReportRequest createReportRequest(String report, String beginDate, String endDate) {
     Requestor requestor = new Requestor();
@@ -82,90 +80,132 @@ public class CS41Impl implements ServiceEndpoint {
 
   CS41Impl(UsageDataProvider provider) {
     this.provider = provider;
-
-    SushiService service = new SushiService();
-    QName next = service.getPorts().next();
-    port = service.getPort(next, SushiServiceInterface.class);
-
-    String serviceUrl = provider.getHarvestingConfig().getSushiConfig().getServiceUrl();
+    this.serviceUrl = provider.getHarvestingConfig().getSushiConfig().getServiceUrl();
 
     try {
-      getProxy(new URI(serviceUrl))
-          .ifPresent(
-              p -> {
-                InetSocketAddress addr = (InetSocketAddress) p.address();
-                Client client = ClientProxy.getClient(port);
-                HTTPConduit http = (HTTPConduit) client.getConduit();
-                http.getClient().setProxyServer(addr.getHostString());
-                http.getClient().setProxyServerPort(addr.getPort());
-              });
+      this.proxy = getProxy(new URI(serviceUrl)).orElse(null);
     } catch (URISyntaxException e) {
       LOG.error("Error getting proxy: {}", e.getMessage());
     }
 
-    BindingProvider bindingProvider = (BindingProvider) port;
-    bindingProvider.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, serviceUrl);
-
-    Client client = ClientProxy.getClient(port);
-    HTTPConduit httpConduit = (HTTPConduit) client.getConduit();
-    httpConduit.getClient().setAutoRedirect(true);
-
-    client
-        .getInInterceptors()
-        .add(
-            new AbstractPhaseInterceptor<Message>(Phase.READ) {
-              @Override
-              public void handleMessage(Message message) {
-                int statusCode = (int) message.get(Message.RESPONSE_CODE);
-                Map<String, List<String>> headers =
-                    CastUtils.cast((Map) message.get(Message.PROTOCOL_HEADERS));
-
-                if (statusCode / 100 != 2) {
-                  String errMessage =
-                      String.format(
-                          "Server responded with status code %s, headers: %s", statusCode, headers);
-                  throw new Fault(new java.lang.Exception(errMessage));
-                }
-              }
-            });
-    client.getInFaultInterceptors().add(new LoggingInInterceptor());
+    archiveKey =
+        String.join(
+            "|",
+            EXECUTOR,
+            serviceUrl,
+            Objects.toString(provider.getSushiCredentials().getRequestorId(), ""),
+            Objects.toString(provider.getSushiCredentials().getCustomerId(), ""),
+            Objects.toString(provider.getHarvestingConfig().getReportRelease(), ""));
   }
 
-  @Override
-  public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
-    Promise<String> promise = Promise.promise();
-
-    Context context = Vertx.currentContext();
-    if (context == null) context = Vertx.vertx().getOrCreateContext();
-
-    context.executeBlocking(
-        block -> {
+  /**
+   * Requests a report on the cs41 {@link ServiceExecutors} pool and converts it with the given
+   * converter, which is also called on the pool thread. Valid responses are stored in the {@link
+   * ResponseArchive}.
+   */
+  private <T> Future<T> fetch(
+      String report, String beginDate, String endDate, Function<Report, T> converter) {
+    return ServiceExecutors.executeBlocking(
+        EXECUTOR,
+        (Promise<T> block) -> {
           CounterReportResponse counterReportResponse;
-          try {
+          byte[] content;
+          try (SushiPortPool.Lease lease = SushiPortPool.get().borrow(serviceUrl, proxy)) {
             ReportRequest reportRequest = createReportRequest(report, beginDate, endDate);
-            counterReportResponse = port.getReport(reportRequest);
+            counterReportResponse = lease.getPort().getReport(reportRequest);
+            content = lease.getResponseContent();
           } catch (java.lang.Exception e) {
             String messages =
                 ExceptionUtils.getThrowableList(e).stream()
                     .map(Throwable::getMessage)
                     .collect(Collectors.joining(", "));
-            block.fail("Error getting report: " + messages);
+            int statusCode =
+                ExceptionUtils.getThrowableList(e).stream()
+                    .filter(SushiException.class::isInstance)
+                    .mapToInt(t -> ((SushiException) t).getStatusCode())
+                    .findFirst()
+                    .orElse(0);
+            block.fail(
+                new SushiException(
+                    "Error getting report: " + messages, statusCode, Collections.emptyList(), e));
             return;
           }
 
-          List<Exception> exceptions = Counter4Utils.getExceptions(counterReportResponse);
-          if (exceptions.isEmpty()
-              && counterReportResponse.getReport() != null
-              && !counterReportResponse.getReport().getReport().isEmpty()) {
-            Report reportResult = counterReportResponse.getReport().getReport().get(0);
-            block.complete(Counter4Utils.toJSON(reportResult));
-          } else {
-            block.fail("Report not valid: " + Counter4Utils.getErrorMessages(exceptions));
+          Report reportResult = Counter41Reports.getReport(counterReportResponse);
+          if (content != null) {
+            ResponseArchive.get()
+                .store(
+                    archiveKey,
+                    report,
+                    YearMonth.from(LocalDate.parse(beginDate)),
+                    YearMonth.from(LocalDate.parse(endDate)),
+                    content);
           }
-        },
-        false,
-        promise);
-    return promise.future();
+          block.complete(converter.apply(reportResult));
+        });
+  }
+
+  /** Unmarshals the {@link CounterReportResponse} in the body of an archived SOAP response. */
+  static CounterReportResponse unmarshal(byte[] content) throws JAXBException, XMLStreamException {
+    XMLStreamReader reader = Counter41Reports.createReader(new ByteArrayInputStream(content));
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT
+            && "Body".equals(reader.getLocalName())) {
+          reader.nextTag();
+          return Counter41Reports.unmarshal(reader);
+        }
+      }
+      throw new XMLStreamException("No SOAP body found in archived response");
+    } finally {
+      reader.close();
+    }
+  }
+
+  /** Rebuilds the report of a month from an archived response. */
+  static org.folio.rest.jaxrs.model.Report decode(ResponseArchive.Entry entry, YearMonth month)
+      throws JAXBException, XMLStreamException {
+    Report r = Counter41Reports.getReport(unmarshal(entry.getContent()));
+    if (entry.getBegin().equals(entry.getEnd())) {
+      return CONVERTER.convert(r);
+    }
+    return splitByMonth(r, entry.getBegin(), entry.getEnd()).get(month);
+  }
+
+  @Override
+  public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
+    return fetch(report, beginDate, endDate, Counter4Utils::toJSON);
+  }
+
+  @Override
+  public Future<org.folio.rest.jaxrs.model.Report> fetchReport(
+      String report, String beginDate, String endDate) {
+    return fetch(report, beginDate, endDate, CONVERTER::convert);
+  }
+
+  @Override
+  public boolean isRangeSupported() {
+    return true;
+  }
+
+  @Override
+  public Future<Map<YearMonth, org.folio.rest.jaxrs.model.Report>> fetchReportRange(
+      String report, YearMonth begin, YearMonth end) {
+    return fetch(
+        report,
+        begin.atDay(1).toString(),
+        end.atEndOfMonth().toString(),
+        r -> splitByMonth(r, begin, end));
+  }
+
+  static Map<YearMonth, org.folio.rest.jaxrs.model.Report> splitByMonth(
+      Report report, YearMonth begin, YearMonth end) {
+    return Counter41Reports.splitByMonth(report, begin, end, CONVERTER::convert);
+  }
+
+  @Override
+  public ServiceEndpoint fromArchive() {
+    return new ArchivedServiceEndpoint(archiveKey, EXECUTOR, CS41Impl::decode);
   }
 
   @Override
@@ -26,7 +26,8 @@ public class CS41Provider implements ServiceEndpointProvider {
   }
 
   @Override
-  public ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  public ServiceEndpoint create(
+      UsageDataProvider provider, AggregatorSetting aggregator, ServiceEndpointContext context) {
     return new CS41Impl(provider);
   }
 }
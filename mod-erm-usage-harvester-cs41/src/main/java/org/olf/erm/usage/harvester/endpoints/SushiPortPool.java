@@ -0,0 +1,253 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.namespace.QName;
+import javax.xml.ws.BindingProvider;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.ext.logging.LoggingInInterceptor;
+import org.apache.cxf.frontend.ClientProxy;
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.transport.http.HTTPConduit;
+import sushiservice.SushiService;
+import sushiservice.SushiServiceInterface;
+
+/**
+ * Pool of configured {@link SushiServiceInterface} ports, keyed by endpoint URL and proxy. The
+ * {@link SushiService} (and with it the parsed WSDL and the CXF service model) is created once per
+ * JVM. A port is used by one request at a time: it is taken from the pool with {@link
+ * #borrow(String, Proxy)} and returned by closing the {@link Lease}. Keys without idle ports are
+ * removed, so the pool only holds keys that currently have ports to hand out.
+ */
+class SushiPortPool {
+
+  static final int MAX_IDLE_PER_KEY = 8;
+
+  /** Response context property holding the raw response, if responses are archived. */
+  static final String RESPONSE_CONTENT = SushiPortPool.class.getName() + ".responseContent";
+
+  private static final SushiPortPool INSTANCE = new SushiPortPool();
+  private static final DecodingInterceptor DECODING_INTERCEPTOR = new DecodingInterceptor();
+
+  // deques are only accessed within compute calls of the map, which lock the key
+  private final Map<Key, Deque<SushiServiceInterface>> idle = new ConcurrentHashMap<>();
+  private final AtomicLong created = new AtomicLong();
+
+  private static class ServiceHolder {
+    private static final SushiService SERVICE = new SushiService();
+    private static final QName PORT_NAME = SERVICE.getPorts().next();
+  }
+
+  static SushiPortPool get() {
+    return INSTANCE;
+  }
+
+  /** Takes an idle port for the given URL and proxy from the pool or creates a new one. */
+  Lease borrow(String serviceUrl, Proxy proxy) {
+    Key key = new Key(serviceUrl, proxy);
+    SushiServiceInterface[] port = new SushiServiceInterface[1];
+    idle.computeIfPresent(
+        key,
+        (k, ports) -> {
+          port[0] = ports.pollFirst();
+          return ports.isEmpty() ? null : ports;
+        });
+    return new Lease(key, port[0] == null ? createPort(serviceUrl, proxy) : port[0]);
+  }
+
+  /** Returns a port to the pool. Ports exceeding {@link #MAX_IDLE_PER_KEY} are dropped. */
+  void release(Key key, SushiServiceInterface port) {
+    idle.compute(
+        key,
+        (k, ports) -> {
+          Deque<SushiServiceInterface> result = ports == null ? new ArrayDeque<>() : ports;
+          if (result.size() < MAX_IDLE_PER_KEY) {
+            result.offerFirst(port);
+          }
+          return result;
+        });
+  }
+
+  long getCreatedPorts() {
+    return created.get();
+  }
+
+  int getIdlePorts(String serviceUrl, Proxy proxy) {
+    int[] count = new int[1];
+    idle.computeIfPresent(
+        new Key(serviceUrl, proxy),
+        (k, ports) -> {
+          count[0] = ports.size();
+          return ports;
+        });
+    return count[0];
+  }
+
+  private SushiServiceInterface createPort(String serviceUrl, Proxy proxy) {
+    SushiServiceInterface port =
+        ServiceHolder.SERVICE.getPort(ServiceHolder.PORT_NAME, SushiServiceInterface.class);
+    created.incrementAndGet();
+
+    Client client = ClientProxy.getClient(port);
+    HTTPConduit http = (HTTPConduit) client.getConduit();
+    if (proxy != null && proxy.address() instanceof InetSocketAddress) {
+      InetSocketAddress addr = (InetSocketAddress) proxy.address();
+      http.getClient().setProxyServer(addr.getHostString());
+      http.getClient().setProxyServerPort(addr.getPort());
+    }
+    http.getClient().setAutoRedirect(true);
+    if (TransferCompression.isEnabled(getHost(serviceUrl))) {
+      http.getClient().setAcceptEncoding(TransferCompression.ACCEPT_ENCODING);
+    }
+
+    BindingProvider bindingProvider = (BindingProvider) port;
+    bindingProvider.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, serviceUrl);
+
+    client
+        .getInInterceptors()
+        .add(
+            new AbstractPhaseInterceptor<Message>(Phase.READ) {
+              @Override
+              public void handleMessage(Message message) {
+                int statusCode = (int) message.get(Message.RESPONSE_CODE);
+                Map<String, List<String>> headers =
+                    CastUtils.cast((Map) message.get(Message.PROTOCOL_HEADERS));
+
+                if (statusCode / 100 != 2) {
+                  String errMessage =
+                      String.format(
+                          "Server responded with status code %s, headers: %s", statusCode, headers);
+                  throw new Fault(
+                      new SushiException(errMessage, statusCode, Collections.emptyList()));
+                }
+              }
+            });
+    client.getInInterceptors().add(DECODING_INTERCEPTOR);
+    client.getInFaultInterceptors().add(DECODING_INTERCEPTOR);
+    client.getInFaultInterceptors().add(new LoggingInInterceptor());
+    return port;
+  }
+
+  private static String getHost(String serviceUrl) {
+    try {
+      return URI.create(serviceUrl).getHost();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Decodes compressed responses with {@link TransferCompression}, counting transferred bytes. If
+   * the {@link ResponseArchive} is enabled, the decoded response is buffered and stored in the
+   * {@link #RESPONSE_CONTENT} property, before CXF unmarshals it.
+   */
+  private static class DecodingInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    DecodingInterceptor() {
+      super(Phase.RECEIVE);
+    }
+
+    @Override
+    public void handleMessage(Message message) {
+      InputStream is = message.getContent(InputStream.class);
+      if (is == null) {
+        return;
+      }
+      Map<String, List<String>> headers =
+          CastUtils.cast((Map) message.get(Message.PROTOCOL_HEADERS));
+      String encoding = null;
+      if (headers != null) {
+        encoding =
+            headers.entrySet().stream()
+                .filter(e -> "Content-Encoding".equalsIgnoreCase(e.getKey()))
+                .flatMap(e -> e.getValue().stream())
+                .findFirst()
+                .orElse(null);
+      }
+      try {
+        InputStream decoded = TransferCompression.decode("cs41", encoding, is);
+        if (ResponseArchive.get().isEnabled()) {
+          byte[] content = ByteStreams.toByteArray(decoded);
+          message.put(RESPONSE_CONTENT, content);
+          decoded = new ByteArrayInputStream(content);
+        }
+        message.setContent(InputStream.class, decoded);
+      } catch (IOException e) {
+        throw new Fault(e);
+      }
+    }
+  }
+
+  /** A borrowed port, to be returned with {@link #close()}. */
+  class Lease implements AutoCloseable {
+    private final Key key;
+    private final SushiServiceInterface port;
+
+    private Lease(Key key, SushiServiceInterface port) {
+      this.key = key;
+      this.port = port;
+    }
+
+    SushiServiceInterface getPort() {
+      return port;
+    }
+
+    /**
+     * Returns the raw response of the last request of this thread, {@code null} if responses are
+     * not archived.
+     */
+    byte[] getResponseContent() {
+      return (byte[]) ((BindingProvider) port).getResponseContext().get(RESPONSE_CONTENT);
+    }
+
+    @Override
+    public void close() {
+      release(key, port);
+    }
+  }
+
+  static class Key {
+    private final String serviceUrl;
+    private final String proxy;
+
+    Key(String serviceUrl, Proxy proxy) {
+      this.serviceUrl = serviceUrl;
+      this.proxy =
+          proxy == null || proxy.address() == null ? null : proxy.address().toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return Objects.equals(serviceUrl, key.serviceUrl) && Objects.equals(proxy, key.proxy);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(serviceUrl, proxy);
+    }
+  }
+}
@@ -12,6 +12,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.io.Resources;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
@@ -22,10 +23,12 @@ import java.net.Proxy.Type;
 import java.net.ProxySelector;
 import java.net.SocketAddress;
 import java.net.URI;
+import java.time.YearMonth;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import org.folio.rest.jaxrs.model.HarvestingConfig;
+import org.folio.rest.jaxrs.model.Report;
 import org.folio.rest.jaxrs.model.SushiConfig;
 import org.folio.rest.jaxrs.model.SushiCredentials;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
@@ -89,6 +92,74 @@ public class CS41ImplTest {
     async.await(5000);
   }
 
+  @Test
+  public void fetchReportRange(TestContext ctx) {
+    CS41Impl cs41 = new CS41Impl(provider);
+
+    wireMockRule.stubFor(
+        post(urlPathEqualTo(SUSHI_SERVICE))
+            .willReturn(aResponse().withStatus(200).withBodyFile("response1.xml")));
+
+    Async async = ctx.async();
+    cs41.fetchReportRange(REPORT_TYPE, YearMonth.of(2018, 1), YearMonth.of(2018, 2))
+        .setHandler(
+            ar -> {
+              assertThat(ar.succeeded()).isTrue();
+              // the response only holds usage for january
+              assertThat(ar.result()).containsOnlyKeys(YearMonth.of(2018, 1));
+              wireMockRule.verify(
+                  1,
+                  postRequestedFor(urlPathEqualTo(SUSHI_SERVICE))
+                      .withRequestBody(
+                          matchingXPath("//ns:End[text()='2018-02-28']")
+                              .withXPathNamespace("ns", "http://www.niso.org/schemas/sushi")));
+              async.complete();
+            });
+
+    async.await(5000);
+  }
+
+  @Test
+  public void testDecodeArchivedResponse() throws Exception {
+    byte[] content = Resources.toByteArray(Resources.getResource("__files/response1.xml"));
+    YearMonth january = YearMonth.of(2018, 1);
+    YearMonth february = YearMonth.of(2018, 2);
+
+    Report single = CS41Impl.decode(new ResponseArchive.Entry(content, january, january), january);
+    assertThat(single).isNotNull();
+
+    ResponseArchive.Entry range = new ResponseArchive.Entry(content, january, february);
+    assertThat(CS41Impl.decode(range, january)).isNotNull();
+    // the response only holds usage for january
+    assertThat(CS41Impl.decode(range, february)).isNull();
+
+    assertThat(new CS41Impl(provider).fromArchive()).isInstanceOf(ArchivedServiceEndpoint.class);
+  }
+
+  @Test
+  public void testPortReuse(TestContext ctx) {
+    wireMockRule.stubFor(
+        post(urlPathEqualTo(SUSHI_SERVICE))
+            .willReturn(aResponse().withStatus(200).withBodyFile("response1.xml")));
+
+    String serviceUrl = provider.getHarvestingConfig().getSushiConfig().getServiceUrl();
+    long created = SushiPortPool.get().getCreatedPorts();
+
+    Async async = ctx.async();
+    new CS41Impl(provider)
+        .fetchSingleReport(REPORT_TYPE, BEGIN_DATE, END_DATE)
+        .compose(r -> new CS41Impl(provider).fetchSingleReport(REPORT_TYPE, BEGIN_DATE, END_DATE))
+        .setHandler(
+            ar ->
+                ctx.verify(
+                    v -> {
+                      assertThat(ar.succeeded()).isTrue();
+                      assertThat(SushiPortPool.get().getCreatedPorts()).isEqualTo(created + 1);
+                      assertThat(SushiPortPool.get().getIdlePorts(serviceUrl, null)).isEqualTo(1);
+                      async.complete();
+                    }));
+  }
+
   @Test
   public void testFetchSingleReportNoConnection(TestContext ctx) {
     CS41Impl cs41 = new CS41Impl(provider);
@@ -1,25 +1,43 @@
 package org.olf.erm.usage.harvester.endpoints;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.google.common.base.Strings;
 import com.google.gson.Gson;
 import io.reactivex.Observable;
-import io.reactivex.schedulers.Schedulers;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
-import java.lang.reflect.Method;
+import io.vertx.core.json.Json;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.Proxy;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import org.folio.rest.jaxrs.model.Report;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
-import org.olf.erm.usage.counter50.Counter5Utils;
 import org.openapitools.client.ApiClient;
 import org.openapitools.client.model.SUSHIErrorModel;
-import org.openapitools.client.model.SUSHIReportHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import retrofit2.HttpException;
@@ -28,8 +46,58 @@ public class CS50Impl implements ServiceEndpoint {
 
   private UsageDataProvider provider;
   private DefaultApi client;
+  private String archiveKey;
   private static Gson gson = new Gson();
   private static final Logger LOG = LoggerFactory.getLogger(CS50Impl.class);
+  private static final String EXECUTOR = "cs50";
+  private static final String REPORT_HEADER = "Report_Header";
+  private static final String REPORT_FILTERS = "Report_Filters";
+  private static final String REPORT_ITEMS = "Report_Items";
+  private static final String PERFORMANCE = "Performance";
+  private static final Map<String, ReportCall> REPORT_CALLS = createReportCalls();
+
+  private static final ObjectReader REPORT_READER =
+      Json.mapper
+          .readerFor(Report.class)
+          .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  /** Call of a report endpoint of {@link DefaultApi}, returning the undecoded response body. */
+  @FunctionalInterface
+  interface ReportCall {
+    Observable<ResponseBody> call(
+        DefaultApi api, String customerId, String beginDate, String endDate, String platform);
+  }
+
+  private static ReportCall raw(String path) {
+    return (api, customerId, beginDate, endDate, platform) ->
+        api.getReportRaw(path, customerId, beginDate, endDate, platform);
+  }
+
+  /** Maps report ids (without underscore, e.g. TRJ1) to the report path of {@link DefaultApi}. */
+  private static Map<String, ReportCall> createReportCalls() {
+    Map<String, ReportCall> calls = new HashMap<>();
+    calls.put("DR", raw("dr"));
+    calls.put("DRD1", raw("dr_d1"));
+    calls.put("DRD2", raw("dr_d2"));
+    calls.put("IR", raw("ir"));
+    calls.put("IRA1", raw("ir_a1"));
+    calls.put("IRM1", raw("ir_m1"));
+    calls.put("PR", raw("pr"));
+    calls.put("PRP1", raw("pr_p1"));
+    calls.put("TR", raw("tr"));
+    calls.put("TRB1", raw("tr_b1"));
+    calls.put("TRB2", raw("tr_b2"));
+    calls.put("TRB3", raw("tr_b3"));
+    calls.put("TRJ1", raw("tr_j1"));
+    calls.put("TRJ2", raw("tr_j2"));
+    calls.put("TRJ3", raw("tr_j3"));
+    calls.put("TRJ4", raw("tr_j4"));
+    return Collections.unmodifiableMap(calls);
+  }
+
+  static Set<String> getSupportedReports() {
+    return REPORT_CALLS.keySet();
+  }
 
   @Override
   public boolean isValidReport(String report) {
@@ -53,6 +121,8 @@ public class CS50Impl implements ServiceEndpoint {
     if (!Strings.isNullOrEmpty(reqId)) apiClient = new ApiClient("requestor_id", reqId);
 
     apiClient.getAdapterBuilder().baseUrl(baseUrl);
+    // share connection pool, dispatcher and TLS setup with all other CS50 endpoints
+    SharedOkHttp.get().apply(apiClient.getOkBuilder());
     apiClient.getOkBuilder().readTimeout(60, TimeUnit.SECONDS);
     // apiClient.getOkBuilder().addInterceptor(new HttpLoggingInterceptor().setLevel(Level.BODY));
 
@@ -77,6 +147,15 @@ public class CS50Impl implements ServiceEndpoint {
     }
 
     client = apiClient.createService(DefaultApi.class);
+    archiveKey =
+        String.join(
+            "|",
+            EXECUTOR,
+            baseUrl,
+            Objects.toString(provider.getSushiCredentials().getCustomerId(), ""),
+            Objects.toString(reqId, ""),
+            Objects.toString(apiKey, ""),
+            Objects.toString(provider.getSushiCredentials().getPlatform(), ""));
   }
 
   private String toJsonOrString(String s) {
@@ -95,56 +174,307 @@ public class CS50Impl implements ServiceEndpoint {
         ResponseBody responseBody = ex.response().errorBody();
         String errorBody = Objects.requireNonNull(responseBody).string();
         if (!Strings.isNullOrEmpty(errorBody)) {
-          return new Throwable(toJsonOrString(errorBody), ex);
+          return new SushiException(
+              toJsonOrString(errorBody), ex.code(), getExceptionCodes(errorBody), ex);
         }
       } catch (Exception exc) {
-        return new Throwable("Error parsing error response: " + exc.getMessage(), ex);
+        return new SushiException(
+            "Error parsing error response: " + exc.getMessage(),
+            ex.code(),
+            Collections.emptyList(),
+            ex);
       }
+      return new SushiException(ex.getMessage(), ex.code(), Collections.emptyList(), ex);
     }
     return e;
   }
 
-  @Override
-  public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
-    String reportID = report.replace("_", "").toUpperCase();
-
-    Method method;
+  /** Returns the codes of a SUSHI error, a list of SUSHI errors or COUNTER exceptions. */
+  private static List<Integer> getExceptionCodes(String errors) {
     try {
-      method =
-          client
-              .getClass()
-              .getMethod(
-                  "getReports" + reportID, String.class, String.class, String.class, String.class);
-    } catch (NoSuchMethodException e) {
-      LOG.error(e.getMessage(), e);
+      return getExceptionCodes(Json.mapper.readTree(errors));
+    } catch (IOException e) {
+      return Collections.emptyList();
+    }
+  }
+
+  private static List<Integer> getExceptionCodes(JsonNode errors) {
+    List<Integer> codes = new ArrayList<>();
+    if (errors == null) {
+      return codes;
+    }
+    Iterable<JsonNode> list = errors.isArray() ? errors : Collections.singletonList(errors);
+    for (JsonNode error : list) {
+      // some services send the code as string
+      int code = error.path("Code").asInt(0);
+      if (code > 0) {
+        codes.add(code);
+      }
+    }
+    return codes;
+  }
+
+  /**
+   * Reads the {@code Report_Header} of a COUNTER 5 report, without parsing the rest of it.
+   *
+   * @return the header or {@code null} if there is none
+   */
+  static JsonNode readReportHeader(byte[] report) throws IOException {
+    try (JsonParser parser = Json.mapper.getFactory().createParser(report)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return null;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        if (REPORT_HEADER.equals(name)) {
+          JsonNode header = Json.mapper.readTree(parser);
+          return header == null || header.isNull() ? null : header;
+        }
+        parser.skipChildren();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads a COUNTER 5 report from a stream into a {@link TokenBuffer}. The {@code Report_Header}
+   * is checked as soon as it has been read, a report with exceptions is not read any further.
+   *
+   * @throws SushiException if the header is missing or contains exceptions
+   */
+  static TokenBuffer readReport(InputStream report) throws IOException {
+    try (JsonParser parser = Json.mapper.getFactory().createParser(report)) {
+      TokenBuffer tokens = new TokenBuffer(Json.mapper, false);
+      JsonNode header = null;
+      if (parser.nextToken() == JsonToken.START_OBJECT) {
+        tokens.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          parser.nextToken();
+          tokens.writeFieldName(name);
+          if (REPORT_HEADER.equals(name)) {
+            header = Json.mapper.readTree(parser);
+            checkReportHeader(header);
+            tokens.writeTree(header);
+          } else {
+            tokens.copyCurrentStructure(parser);
+          }
+        }
+        tokens.writeEndObject();
+      }
+      checkReportHeader(header);
+      return tokens;
+    }
+  }
+
+  /** Fails if a report header is missing or contains exceptions. */
+  private static void checkReportHeader(JsonNode header) {
+    if (header == null || header.isNull()) {
+      throw new SushiException(
+          "Unkown Error - 200 Response is missing reportHeader", 200, Collections.emptyList());
+    }
+    JsonNode exceptions = header.get("Exceptions");
+    if (exceptions != null && exceptions.size() > 0) {
+      throw new SushiException(exceptions.toString(), 200, getExceptionCodes(exceptions));
+    }
+  }
+
+  /** Reads a checked report, given as parser and as raw body if the body has been buffered. */
+  @FunctionalInterface
+  interface BodyReader<T> {
+    T read(JsonParser report, byte[] body) throws IOException;
+  }
+
+  /**
+   * Requests a report on the cs50 {@link ServiceExecutors} pool and checks its header for
+   * exceptions. The response body is streamed and only buffered if it is archived or the reader
+   * needs it. The reader is called on the pool thread.
+   *
+   * @param keepBody whether the reader needs the raw body
+   */
+  private <T> Future<T> fetch(
+      String report, String beginDate, String endDate, boolean keepBody, BodyReader<T> reader) {
+    ReportCall call = REPORT_CALLS.get(report.replace("_", "").toUpperCase());
+    if (call == null) {
+      NoSuchMethodException e = new NoSuchMethodException("Unsupported report: " + report);
+      LOG.error(e.getMessage());
       return Future.failedFuture(e);
     }
 
     String customerId = provider.getSushiCredentials().getCustomerId();
     String platform = Objects.toString(provider.getSushiCredentials().getPlatform(), "");
 
-    Promise<String> promise = Promise.promise();
+    // the call is executed synchronously on the subscribing thread, which is a pool thread
+    return ServiceExecutors.executeBlocking(
+        EXECUTOR,
+        (Promise<T> promise) -> {
+          call.call(client, customerId, beginDate, endDate, platform)
+              .subscribe(
+                  body -> {
+                    try (ResponseBody b = body) {
+                      promise.complete(read(report, beginDate, endDate, b, keepBody, reader));
+                    } catch (IOException | RuntimeException e) {
+                      promise.fail(e);
+                    }
+                  },
+                  e -> promise.fail(getSushiError(e)));
+        });
+  }
+
+  private <T> T read(
+      String report,
+      String beginDate,
+      String endDate,
+      ResponseBody body,
+      boolean keepBody,
+      BodyReader<T> reader)
+      throws IOException {
+    ResponseArchive archive = ResponseArchive.get();
+    if (!keepBody && !archive.isEnabled()) {
+      TokenBuffer tokens = readReport(body.byteStream());
+      try (JsonParser parser = tokens.asParser(Json.mapper)) {
+        return reader.read(parser, null);
+      }
+    }
+
+    byte[] bytes = body.bytes();
+    checkReportHeader(readReportHeader(bytes));
+    archive.store(
+        archiveKey,
+        report,
+        YearMonth.from(LocalDate.parse(beginDate)),
+        YearMonth.from(LocalDate.parse(endDate)),
+        bytes);
+    try (JsonParser parser = Json.mapper.getFactory().createParser(bytes)) {
+      return reader.read(parser, bytes);
+    }
+  }
+
+  @Override
+  public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
+    return fetch(
+        report, beginDate, endDate, true, (p, body) -> new String(body, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public Future<Report> fetchReport(String report, String beginDate, String endDate) {
+    return fetch(report, beginDate, endDate, false, (p, body) -> REPORT_READER.readValue(p));
+  }
+
+  @Override
+  public boolean isRangeSupported() {
+    return true;
+  }
+
+  @Override
+  public Future<Map<YearMonth, Report>> fetchReportRange(
+      String report, YearMonth begin, YearMonth end) {
+    return fetch(
+        report,
+        begin.atDay(1).toString(),
+        end.atEndOfMonth().toString(),
+        false,
+        (p, body) -> {
+          ObjectNode tree = Json.mapper.readTree(p);
+          Map<YearMonth, Report> result = new TreeMap<>();
+          for (Map.Entry<YearMonth, ObjectNode> month : splitByMonth(tree, begin, end).entrySet()) {
+            result.put(month.getKey(), REPORT_READER.readValue(month.getValue()));
+          }
+          return result;
+        });
+  }
+
+  @Override
+  public ServiceEndpoint fromArchive() {
+    return new ArchivedServiceEndpoint(
+        archiveKey,
+        EXECUTOR,
+        (entry, month) -> {
+          if (entry.getBegin().equals(entry.getEnd())) {
+            return REPORT_READER.readValue(entry.getContent());
+          }
+          ObjectNode tree = (ObjectNode) Json.mapper.readTree(entry.getContent());
+          return REPORT_READER.readValue(
+              splitByMonth(tree, entry.getBegin(), entry.getEnd()).get(month));
+        });
+  }
+
+  /**
+   * Splits a COUNTER 5 report into one report per month. Items and header are shallow copies
+   * sharing unchanged nodes with the original report. Months without performance data are left
+   * out.
+   */
+  static Map<YearMonth, ObjectNode> splitByMonth(
+      ObjectNode report, YearMonth begin, YearMonth end) {
+    JsonNode items = report.path(REPORT_ITEMS);
+
+    Map<YearMonth, ObjectNode> result = new TreeMap<>();
+    for (YearMonth month = begin; !month.isAfter(end); month = month.plusMonths(1)) {
+      ArrayNode monthItems = report.arrayNode();
+      for (JsonNode item : items) {
+        ArrayNode performance = report.arrayNode();
+        for (JsonNode perf : item.path(PERFORMANCE)) {
+          if (month.equals(getMonth(perf))) {
+            performance.add(perf);
+          }
+        }
+        if (performance.size() > 0) {
+          ObjectNode monthItem = shallowCopy((ObjectNode) item);
+          monthItem.set(PERFORMANCE, performance);
+          monthItems.add(monthItem);
+        }
+      }
+      if (monthItems.size() == 0) {
+        continue;
+      }
+
+      ObjectNode monthReport = shallowCopy(report);
+      monthReport.set(REPORT_ITEMS, monthItems);
+      if (report.path(REPORT_HEADER).isObject()) {
+        monthReport.set(
+            REPORT_HEADER, withDateFilters((ObjectNode) report.get(REPORT_HEADER), month));
+      }
+      result.put(month, monthReport);
+    }
+    return result;
+  }
+
+  private static YearMonth getMonth(JsonNode performance) {
     try {
-      ((Observable<?>) method.invoke(client, customerId, beginDate, endDate, platform))
-          .subscribeOn(Schedulers.io())
-          .subscribe(
-              r -> {
-                String content = gson.toJson(r);
-                SUSHIReportHeader reportHeader = Counter5Utils.getReportHeader(content);
-                if (reportHeader == null) {
-                  promise.fail("Unkown Error - 200 Response is missing reportHeader");
-                } else if (reportHeader.getExceptions() != null
-                    && !reportHeader.getExceptions().isEmpty()) {
-                  promise.fail(gson.toJson(reportHeader.getExceptions()));
-                } else {
-                  promise.complete(content);
-                }
-              },
-              e -> promise.fail(getSushiError(e)));
-    } catch (Exception e) {
-      promise.fail(e);
+      String beginDate = performance.path("Period").path("Begin_Date").asText();
+      return YearMonth.from(LocalDate.parse(beginDate));
+    } catch (RuntimeException e) {
+      return null;
     }
+  }
+
+  private static ObjectNode withDateFilters(ObjectNode header, YearMonth month) {
+    ObjectNode result = shallowCopy(header);
+    if (header.path(REPORT_FILTERS).isArray()) {
+      ArrayNode filters = header.arrayNode();
+      for (JsonNode filter : header.get(REPORT_FILTERS)) {
+        String name = filter.path("Name").asText();
+        if ("Begin_Date".equals(name) || "End_Date".equals(name)) {
+          ObjectNode dateFilter = shallowCopy((ObjectNode) filter);
+          dateFilter.put(
+              "Value",
+              "Begin_Date".equals(name)
+                  ? month.atDay(1).toString()
+                  : month.atEndOfMonth().toString());
+          filters.add(dateFilter);
+        } else {
+          filters.add(filter);
+        }
+      }
+      result.set(REPORT_FILTERS, filters);
+    }
+    return result;
+  }
 
-    return promise.future();
+  private static ObjectNode shallowCopy(ObjectNode node) {
+    ObjectNode copy = node.objectNode();
+    copy.setAll(node);
+    return copy;
   }
 }
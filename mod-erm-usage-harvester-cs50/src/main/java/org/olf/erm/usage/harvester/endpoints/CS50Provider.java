@@ -1,5 +1,6 @@
 package org.olf.erm.usage.harvester.endpoints;
 
+import io.vertx.core.json.JsonObject;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 
@@ -21,7 +22,13 @@ public class CS50Provider implements ServiceEndpointProvider {
   }
 
   @Override
-  public ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  public ServiceEndpoint create(
+      UsageDataProvider provider, AggregatorSetting aggregator, ServiceEndpointContext context) {
     return new CS50Impl(provider);
   }
+
+  @Override
+  public JsonObject getStatistics() {
+    return SharedOkHttp.get().getStatistics();
+  }
 }
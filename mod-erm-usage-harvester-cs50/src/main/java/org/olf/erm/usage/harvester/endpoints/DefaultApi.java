@@ -2,6 +2,7 @@ package org.olf.erm.usage.harvester.endpoints;
 
 import io.reactivex.Observable;
 import java.util.List;
+import okhttp3.ResponseBody;
 import org.openapitools.client.model.COUNTERDatabaseReport;
 import org.openapitools.client.model.COUNTERItemReport;
 import org.openapitools.client.model.COUNTERPlatformReport;
@@ -10,7 +11,9 @@ import org.openapitools.client.model.SUSHIConsortiumMemberList;
 import org.openapitools.client.model.SUSHIReportList;
 import org.openapitools.client.model.SUSHIServiceStatus;
 import retrofit2.http.GET;
+import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 public interface DefaultApi {
 
@@ -28,6 +31,20 @@ public interface DefaultApi {
       @Query("platform") String platform,
       @Query("search") String search);
 
+  /**
+   * Requests a report without decoding it.
+   *
+   * @param report report path, e.g. {@code tr_j1}
+   */
+  @Streaming
+  @GET("reports/{report}")
+  Observable<ResponseBody> getReportRaw(
+      @Path("report") String report,
+      @Query("customer_id") String customerId,
+      @Query("begin_date") String beginDate,
+      @Query("end_date") String endDate,
+      @Query("platform") String platform);
+
   @GET("reports/dr")
   Observable<COUNTERDatabaseReport> getReportsDR(
       @Query("customer_id") String customerId,
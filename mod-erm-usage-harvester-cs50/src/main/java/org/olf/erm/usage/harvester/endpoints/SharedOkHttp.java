@@ -0,0 +1,166 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Okio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * OkHttp resources shared by all {@link CS50Impl} instances: connection pool, dispatcher, TLS
+ * socket factory and compressed transfer, see {@link TransferCompression}. Every endpoint builds
+ * its own client for auth and base URL on top of these, so connections to the same platform are
+ * reused across providers. Requests per host are limited before a fetch reaches the cs50
+ * executor, by the {@code hostLimits} of the harvester.
+ *
+ * <p>Options are read from the {@code cs50Client} object of the module configuration:
+ *
+ * <ul>
+ *   <li>{@code maxIdleConnections} - max number of idle connections kept in the pool (default: 20)
+ *   <li>{@code keepAliveSeconds} - time after which an idle connection is closed (default: 300)
+ * </ul>
+ */
+class SharedOkHttp {
+
+  static final String CONFIG_KEY = "cs50Client";
+  static final int DEFAULT_MAX_IDLE_CONNECTIONS = 20;
+  static final int DEFAULT_KEEP_ALIVE_SECONDS = 300;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SharedOkHttp.class);
+
+  private final ConnectionPool connectionPool;
+  private final Dispatcher dispatcher = new Dispatcher();
+  private final AtomicLong connectionsAcquired = new AtomicLong();
+  private final AtomicLong connectionsCreated = new AtomicLong();
+  private SSLSocketFactory sslSocketFactory;
+  private X509TrustManager trustManager;
+
+  private static class Holder {
+    private static final SharedOkHttp INSTANCE =
+        new SharedOkHttp(ServiceEndpointContext.getModuleConfig(CONFIG_KEY));
+  }
+
+  SharedOkHttp(JsonObject config) {
+    connectionPool =
+        new ConnectionPool(
+            config.getInteger("maxIdleConnections", DEFAULT_MAX_IDLE_CONNECTIONS),
+            config.getInteger("keepAliveSeconds", DEFAULT_KEEP_ALIVE_SECONDS),
+            TimeUnit.SECONDS);
+
+    try {
+      TrustManagerFactory tmf =
+          TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      tmf.init((KeyStore) null);
+      for (TrustManager tm : tmf.getTrustManagers()) {
+        if (tm instanceof X509TrustManager) {
+          trustManager = (X509TrustManager) tm;
+        }
+      }
+      SSLContext sslContext = SSLContext.getInstance("TLS");
+      sslContext.init(null, new TrustManager[] {trustManager}, null);
+      sslSocketFactory = sslContext.getSocketFactory();
+    } catch (Exception e) {
+      LOG.warn("Error creating shared TLS context, using OkHttp defaults: {}", e.getMessage());
+      sslSocketFactory = null;
+      trustManager = null;
+    }
+  }
+
+  static SharedOkHttp get() {
+    return Holder.INSTANCE;
+  }
+
+  /** Makes the builder use the shared resources. */
+  OkHttpClient.Builder apply(OkHttpClient.Builder builder) {
+    builder
+        .connectionPool(connectionPool)
+        .dispatcher(dispatcher)
+        .eventListener(new ReuseListener())
+        .addInterceptor(new CompressionInterceptor());
+    if (sslSocketFactory != null && trustManager != null) {
+      builder.sslSocketFactory(sslSocketFactory, trustManager);
+    }
+    return builder;
+  }
+
+  JsonObject getStatistics() {
+    long acquired = connectionsAcquired.get();
+    long created = connectionsCreated.get();
+    return new JsonObject()
+        .put("connections", connectionPool.connectionCount())
+        .put("idleConnections", connectionPool.idleConnectionCount())
+        .put("connectionsCreated", created)
+        .put("connectionsReused", Math.max(0, acquired - created));
+  }
+
+  private class ReuseListener extends EventListener {
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+      connectionsAcquired.incrementAndGet();
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+      connectionsCreated.incrementAndGet();
+    }
+  }
+
+  /**
+   * Negotiates compression with {@link TransferCompression} instead of OkHttp's transparent gzip
+   * support, so that bytes can be counted and compression can be disabled per host.
+   */
+  private static class CompressionInterceptor implements Interceptor {
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+      Request request = chain.request();
+      String acceptEncoding =
+          TransferCompression.isEnabled(request.url().host())
+              ? TransferCompression.ACCEPT_ENCODING
+              : "identity";
+      Response response =
+          chain.proceed(request.newBuilder().header("Accept-Encoding", acceptEncoding).build());
+
+      ResponseBody body = response.body();
+      if (body == null) {
+        return response;
+      }
+      try {
+        InputStream decoded =
+            TransferCompression.decode(
+                "cs50",
+                response.header("Content-Encoding"),
+                body.byteStream());
+        return response
+            .newBuilder()
+            .removeHeader("Content-Encoding")
+            .removeHeader("Content-Length")
+            .body(ResponseBody.create(body.contentType(), -1, Okio.buffer(Okio.source(decoded))))
+            .build();
+      } catch (IOException | RuntimeException e) {
+        body.close();
+        throw e;
+      }
+    }
+  }
+}
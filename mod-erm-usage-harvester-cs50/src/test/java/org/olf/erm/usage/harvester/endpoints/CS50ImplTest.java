@@ -5,18 +5,27 @@ import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.google.common.io.Resources;
 import com.google.gson.Gson;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.Timeout;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
@@ -25,10 +34,13 @@ import java.net.ProxySelector;
 import java.net.SocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 import org.folio.rest.jaxrs.model.HarvestingConfig;
 import org.folio.rest.jaxrs.model.SushiConfig;
 import org.folio.rest.jaxrs.model.SushiCredentials;
@@ -165,6 +177,116 @@ public class CS50ImplTest {
             });
   }
 
+  @Test
+  public void testFetchReportOk(TestContext context) {
+    String cr = gson.toJson(emptyReport);
+    wmRule.stubFor(
+        get(urlPathEqualTo(REPORT_PATH)).willReturn(aResponse().withStatus(200).withBody(cr)));
+
+    Async async = context.async();
+    new CS50Impl(provider)
+        .fetchReport(REPORT, BEGIN_DATE, END_DATE)
+        .setHandler(
+            ar -> {
+              assertThat(ar.succeeded()).isTrue();
+              assertThat(new JsonObject(Json.encode(ar.result()))).isEqualTo(new JsonObject(cr));
+              verifyApiCall();
+              async.complete();
+            });
+  }
+
+  @Test
+  public void testSplitByMonth() throws IOException {
+    String report =
+        "{\"Report_Header\":{\"Report_ID\":\"TR_J1\",\"Report_Filters\":["
+            + "{\"Name\":\"Begin_Date\",\"Value\":\"2019-01-01\"},"
+            + "{\"Name\":\"End_Date\",\"Value\":\"2019-03-31\"}]},"
+            + "\"Report_Items\":["
+            + "{\"Title\":\"A\",\"Performance\":["
+            + "{\"Period\":{\"Begin_Date\":\"2019-01-01\",\"End_Date\":\"2019-01-31\"}},"
+            + "{\"Period\":{\"Begin_Date\":\"2019-02-01\",\"End_Date\":\"2019-02-28\"}}]},"
+            + "{\"Title\":\"B\",\"Performance\":["
+            + "{\"Period\":{\"Begin_Date\":\"2019-02-01\",\"End_Date\":\"2019-02-28\"}}]}]}";
+    ObjectNode tree = (ObjectNode) Json.mapper.readTree(report);
+
+    Map<YearMonth, ObjectNode> result =
+        CS50Impl.splitByMonth(tree, YearMonth.of(2019, 1), YearMonth.of(2019, 3));
+
+    assertThat(result.keySet().toArray())
+        .containsExactly(YearMonth.of(2019, 1), YearMonth.of(2019, 2));
+    JsonObject jan = new JsonObject(result.get(YearMonth.of(2019, 1)).toString());
+    assertThat(jan.getJsonArray("Report_Items").size()).isEqualTo(1);
+    assertThat(jan.getJsonArray("Report_Items").getJsonObject(0).getJsonArray("Performance").size())
+        .isEqualTo(1);
+    assertThat(
+            jan.getJsonObject("Report_Header").getJsonArray("Report_Filters").getJsonObject(1))
+        .isEqualTo(new JsonObject().put("Name", "End_Date").put("Value", "2019-01-31"));
+    JsonObject feb = new JsonObject(result.get(YearMonth.of(2019, 2)).toString());
+    assertThat(feb.getJsonArray("Report_Items").size()).isEqualTo(2);
+    // the original report is left untouched
+    assertThat(new JsonObject(tree.toString())).isEqualTo(new JsonObject(report));
+  }
+
+  @Test
+  public void testConnectionReuseAcrossEndpoints(TestContext context) {
+    wmRule.stubFor(
+        get(urlPathEqualTo(REPORT_PATH))
+            .willReturn(aResponse().withStatus(200).withBody(gson.toJson(emptyReport))));
+    long reused = SharedOkHttp.get().getStatistics().getLong("connectionsReused");
+
+    Async async = context.async();
+    new CS50Impl(provider)
+        .fetchSingleReport(REPORT, BEGIN_DATE, END_DATE)
+        .compose(r -> new CS50Impl(provider).fetchSingleReport(REPORT, BEGIN_DATE, END_DATE))
+        .setHandler(
+            ar ->
+                context.verify(
+                    v -> {
+                      assertThat(ar.succeeded()).isTrue();
+                      assertThat(SharedOkHttp.get().getStatistics().getLong("connectionsReused"))
+                          .isGreaterThan(reused);
+                      async.complete();
+                    }));
+  }
+
+  @Test
+  public void testCompressedResponse(TestContext context) throws IOException {
+    String json = gson.toJson(emptyReport);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+    wmRule.stubFor(
+        get(urlPathEqualTo(REPORT_PATH))
+            .willReturn(
+                aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Encoding", "gzip")
+                    .withBody(out.toByteArray())));
+
+    Async async = context.async();
+    new CS50Impl(provider)
+        .fetchSingleReport(REPORT, BEGIN_DATE, END_DATE)
+        .setHandler(
+            ar ->
+                context.verify(
+                    v -> {
+                      assertThat(ar.succeeded()).isTrue();
+                      assertThat(new JsonObject(ar.result())).isEqualTo(new JsonObject(json));
+                      wmRule.verify(
+                          getRequestedFor(urlPathEqualTo(REPORT_PATH))
+                              .withHeader(
+                                  "Accept-Encoding",
+                                  equalTo(TransferCompression.ACCEPT_ENCODING)));
+                      assertThat(
+                              TransferCompression.getStatistics()
+                                  .getJsonObject("cs50")
+                                  .getLong("compressedResponses"))
+                          .isGreaterThan(0);
+                      async.complete();
+                    }));
+  }
+
   @Test
   public void testFetchSingleReportError(TestContext context) throws IOException {
     String errStr = Resources.toString(Resources.getResource("error.json"), StandardCharsets.UTF_8);
@@ -178,6 +300,8 @@ public class CS50ImplTest {
             ar -> {
               assertThat(ar.failed()).isTrue();
               assertThat(ar.cause()).hasMessageContaining("api_key Invalid");
+              assertThat(((SushiException) ar.cause()).getExceptionCodes().toArray())
+                  .containsExactly(2020);
               verifyApiCall();
               async.complete();
             });
@@ -197,6 +321,8 @@ public class CS50ImplTest {
             ar -> {
               assertThat(ar.failed()).isTrue();
               assertThat(ar.cause()).hasMessageContaining("api_key Invalid");
+              assertThat(((SushiException) ar.cause()).getExceptionCodes().toArray())
+                  .containsExactly(2020);
               verifyApiCall();
               async.complete();
             });
@@ -213,8 +339,10 @@ public class CS50ImplTest {
             ar -> {
               assertThat(ar.failed()).isTrue();
               assertThat(ar.cause())
-                  .isInstanceOf(HttpException.class)
-                  .hasMessageContaining("Not Found");
+                  .isInstanceOf(SushiException.class)
+                  .hasMessageContaining("Not Found")
+                  .hasCauseInstanceOf(HttpException.class);
+              assertThat(((SushiException) ar.cause()).getStatusCode()).isEqualTo(404);
               verifyApiCall();
               async.complete();
             });
@@ -253,6 +381,17 @@ public class CS50ImplTest {
             });
   }
 
+  @Test
+  public void testSupportedReportsCoverDefaultApi() {
+    Object[] reportMethods =
+        Arrays.stream(DefaultApi.class.getMethods())
+            .map(Method::getName)
+            .filter(name -> name.startsWith("getReports") && name.length() > "getReports".length())
+            .map(name -> name.substring("getReports".length()))
+            .toArray();
+    assertThat(CS50Impl.getSupportedReports().toArray()).containsOnly(reportMethods);
+  }
+
   @Test
   public void testNoSuchMethod() {
     new CS50Impl(provider)
@@ -309,4 +448,31 @@ public class CS50ImplTest {
                           verifyApiCall();
                         })));
   }
+
+  @Test
+  public void testReadReport() throws IOException {
+    String report =
+        "{\"Report_Items\":[{\"Title\":\"A\"}],\"Report_Header\":{\"Report_ID\":\"TR_J1\"}}";
+    TokenBuffer tokens =
+        CS50Impl.readReport(new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8)));
+    JsonNode tree = Json.mapper.readTree(tokens.asParser(Json.mapper));
+    assertThat(tree.get("Report_Header").get("Report_ID").asText()).isEqualTo("TR_J1");
+    assertThat(tree.get("Report_Items").get(0).get("Title").asText()).isEqualTo("A");
+
+    // the header is checked before the truncated items are read
+    String error =
+        "{\"Report_Header\":{\"Exceptions\":[{\"Code\":2020,\"Message\":\"api_key Invalid\"}]},"
+            + "\"Report_Items\":[{\"Tit";
+    assertThatThrownBy(
+            () ->
+                CS50Impl.readReport(
+                    new ByteArrayInputStream(error.getBytes(StandardCharsets.UTF_8))))
+        .isInstanceOf(SushiException.class)
+        .hasMessageContaining("api_key Invalid");
+
+    byte[] noHeader = "{\"Report_Items\":[]}".getBytes(StandardCharsets.UTF_8);
+    assertThatThrownBy(() -> CS50Impl.readReport(new ByteArrayInputStream(noHeader)))
+        .isInstanceOf(SushiException.class)
+        .hasMessageContaining("missing reportHeader");
+  }
 }
@@ -1,22 +1,35 @@
 package org.olf.erm.usage.harvester.endpoints;
 
+import com.google.common.io.ByteStreams;
+import io.netty.buffer.ByteBufInputStream;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
-import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.net.ProxyOptions;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
-import java.io.StringReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.URI;
-import java.util.List;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
 import java.util.Map;
-import javax.xml.bind.JAXB;
+import java.util.Objects;
+import java.util.function.Function;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.niso.schemas.counter.Report;
-import org.niso.schemas.sushi.Exception;
 import org.niso.schemas.sushi.counter.CounterReportResponse;
 import org.olf.erm.usage.counter41.Counter4Utils;
 import org.slf4j.Logger;
@@ -24,16 +37,17 @@ import org.slf4j.LoggerFactory;
 
 public class NSS implements ServiceEndpoint {
 
-  private Vertx vertx;
+  private ServiceEndpointContext context;
   private UsageDataProvider provider;
   private AggregatorSetting aggregator;
   private static final Logger LOG = LoggerFactory.getLogger(NSS.class);
+  private static final String EXECUTOR = "nss";
+  private static final ReportConverter CONVERTER =
+      new ReportConverter(Counter4Utils.createObjectMapper());
 
-  public NSS(UsageDataProvider provider, AggregatorSetting aggregator) {
-    if (Vertx.currentContext() == null) this.vertx = Vertx.vertx();
-    else {
-      this.vertx = Vertx.currentContext().owner();
-    }
+  public NSS(
+      UsageDataProvider provider, AggregatorSetting aggregator, ServiceEndpointContext context) {
+    this.context = Objects.requireNonNull(context);
     this.provider = provider;
     this.aggregator = aggregator;
   }
@@ -65,53 +79,182 @@ public class NSS implements ServiceEndpoint {
     return false;
   }
 
-  @Override
-  public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
+  private <T> Future<T> fetch(
+      String report, String beginDate, String endDate, Function<Report, T> converter) {
     final String url = buildURL(report, beginDate, endDate);
 
-    Promise<String> promise = Promise.promise();
+    Promise<T> promise = Promise.promise();
 
-    WebClientOptions options = new WebClientOptions();
+    String host = null;
+    InetSocketAddress proxyAddr = null;
     try {
-      getProxy(new URI(url))
-          .ifPresent(
-              p -> {
-                InetSocketAddress addr = (InetSocketAddress) p.address();
-                options.setProxyOptions(
-                    new ProxyOptions().setHost(addr.getHostString()).setPort(addr.getPort()));
-              });
+      URI uri = new URI(url);
+      host = uri.getHost();
+      proxyAddr = getProxy(uri).map(p -> (InetSocketAddress) p.address()).orElse(null);
     } catch (java.lang.Exception e) {
       LOG.error("Error getting proxy: {}", e.getMessage());
     }
 
-    WebClient client = WebClient.create(vertx, options);
-    client
-        .requestAbs(HttpMethod.GET, url)
-        .send(
+    // one client per proxy, shared by all NSS endpoints
+    final InetSocketAddress proxy = proxyAddr;
+    final boolean compression = TransferCompression.isEnabled(host);
+    context
+        .getHttpClient(
+            "nss:" + (proxy == null ? "direct" : proxy.getHostString() + ":" + proxy.getPort()),
+            () -> {
+              WebClientOptions options = new WebClientOptions();
+              if (proxy != null) {
+                options.setProxyOptions(
+                    new ProxyOptions().setHost(proxy.getHostString()).setPort(proxy.getPort()));
+              }
+              return options;
+            })
+        .compose(httpClient -> send(httpClient, url, compression))
+        .setHandler(
             ar -> {
-              if (ar.succeeded()) {
-                client.close();
-                if (ar.result().statusCode() == 200) {
-                  String result = ar.result().bodyAsString();
-                  CounterReportResponse reportResponse =
-                      JAXB.unmarshal(new StringReader(result), CounterReportResponse.class);
-                  List<Exception> exceptions = Counter4Utils.getExceptions(reportResponse);
-                  if (exceptions.isEmpty()
-                      && reportResponse.getReport() != null
-                      && !reportResponse.getReport().getReport().isEmpty()) {
-                    Report report2 = reportResponse.getReport().getReport().get(0);
-                    promise.complete(Counter4Utils.toJSON(report2));
-                  } else {
-                    promise.fail("Report not valid: " + Counter4Utils.getErrorMessages(exceptions));
-                  }
-                } else {
-                  promise.fail(
-                      url + " - " + ar.result().statusCode() + " : " + ar.result().statusMessage());
-                }
-              } else {
+              if (ar.failed()) {
                 promise.fail(ar.cause());
+                return;
+              }
+              HttpResponse<Buffer> response = ar.result();
+              if (response.statusCode() != 200) {
+                promise.fail(
+                    new SushiException(
+                        url + " - " + response.statusCode() + " : " + response.statusMessage(),
+                        response.statusCode(),
+                        Collections.emptyList()));
+                return;
               }
+              // parsing large reports must not block the event loop
+              context
+                  .executeBlocking(
+                      EXECUTOR,
+                      (Promise<T> p) -> parse(report, beginDate, endDate, response, converter, p))
+                  .setHandler(promise);
             });
     return promise.future();
   }
+
+  private static Future<HttpResponse<Buffer>> send(
+      HttpClient httpClient, String url, boolean compression) {
+    HttpRequest<Buffer> request = WebClient.wrap(httpClient).requestAbs(HttpMethod.GET, url);
+    if (compression) {
+      request.putHeader(
+          HttpHeaders.ACCEPT_ENCODING.toString(), TransferCompression.ACCEPT_ENCODING);
+    }
+    Promise<HttpResponse<Buffer>> promise = Promise.promise();
+    request.send(promise);
+    return promise.future();
+  }
+
+  private <T> void parse(
+      String report,
+      String beginDate,
+      String endDate,
+      HttpResponse<Buffer> response,
+      Function<Report, T> converter,
+      Promise<T> promise) {
+    ResponseArchive archive = ResponseArchive.get();
+    byte[] content = null;
+    Report r;
+    try (InputStream is = decodeBody(response)) {
+      // the response is only buffered if it is archived
+      if (archive.isEnabled()) {
+        content = ByteStreams.toByteArray(is);
+        r = Counter41Reports.getReport(unmarshal(new ByteArrayInputStream(content)));
+      } else {
+        r = Counter41Reports.getReport(unmarshal(is));
+      }
+    } catch (java.lang.Exception e) {
+      promise.fail(e);
+      return;
+    }
+
+    if (content != null) {
+      archive.store(
+          getArchiveKey(),
+          report,
+          YearMonth.from(LocalDate.parse(beginDate)),
+          YearMonth.from(LocalDate.parse(endDate)),
+          content);
+    }
+    try {
+      promise.complete(converter.apply(r));
+    } catch (java.lang.Exception e) {
+      promise.fail(e);
+    }
+  }
+
+  /** The request URL without report and dates identifies service URL and credentials. */
+  private String getArchiveKey() {
+    return EXECUTOR + "|" + buildURL("", "", "");
+  }
+
+  private static InputStream decodeBody(HttpResponse<Buffer> response) throws IOException {
+    Buffer body = response.body() == null ? Buffer.buffer() : response.body();
+    return TransferCompression.decode(
+        "nss",
+        response.getHeader(HttpHeaders.CONTENT_ENCODING.toString()),
+        new ByteBufInputStream(body.getByteBuf()));
+  }
+
+  /** Unmarshals a response with {@link Counter41Reports}, streaming it with StAX. */
+  static CounterReportResponse unmarshal(InputStream is) throws JAXBException, XMLStreamException {
+    XMLStreamReader reader = Counter41Reports.createReader(is);
+    try {
+      return Counter41Reports.unmarshal(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Override
+  public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
+    return fetch(report, beginDate, endDate, Counter4Utils::toJSON);
+  }
+
+  @Override
+  public Future<org.folio.rest.jaxrs.model.Report> fetchReport(
+      String report, String beginDate, String endDate) {
+    return fetch(report, beginDate, endDate, NSS::toFolioReport);
+  }
+
+  @Override
+  public boolean isRangeSupported() {
+    return true;
+  }
+
+  @Override
+  public Future<Map<YearMonth, org.folio.rest.jaxrs.model.Report>> fetchReportRange(
+      String report, YearMonth begin, YearMonth end) {
+    return fetch(
+        report,
+        begin.atDay(1).toString(),
+        end.atEndOfMonth().toString(),
+        r -> split(r, begin, end));
+  }
+
+  @Override
+  public ServiceEndpoint fromArchive() {
+    return new ArchivedServiceEndpoint(
+        getArchiveKey(),
+        EXECUTOR,
+        (entry, month) -> {
+          Report r =
+              Counter41Reports.getReport(unmarshal(new ByteArrayInputStream(entry.getContent())));
+          if (entry.getBegin().equals(entry.getEnd())) {
+            return toFolioReport(r);
+          }
+          return split(r, entry.getBegin(), entry.getEnd()).get(month);
+        });
+  }
+
+  private static org.folio.rest.jaxrs.model.Report toFolioReport(Report r) {
+    return CONVERTER.convert(r);
+  }
+
+  private static Map<YearMonth, org.folio.rest.jaxrs.model.Report> split(
+      Report r, YearMonth begin, YearMonth end) {
+    return Counter41Reports.splitByMonth(r, begin, end, NSS::toFolioReport);
+  }
 }
@@ -33,7 +33,8 @@ public class NSSProvider implements ServiceEndpointProvider {
   }
 
   @Override
-  public ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
-    return new NSS(provider, aggregator);
+  public ServiceEndpoint create(
+      UsageDataProvider provider, AggregatorSetting aggregator, ServiceEndpointContext context) {
+    return new NSS(provider, aggregator, context);
   }
 }
@@ -13,24 +13,29 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.google.common.io.Resources;
 import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.Timeout;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.Proxy.Type;
 import java.net.ProxySelector;
 import java.net.SocketAddress;
 import java.net.URI;
+import java.net.URL;
 import java.util.Collections;
 import java.util.List;
 import javax.xml.bind.JAXB;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -49,6 +54,8 @@ public class NSSTest {
   @Rule public WireMockRule wireMockProxyRule = new WireMockRule(wireMockConfig().dynamicPort());
 
   private static final Logger LOG = LoggerFactory.getLogger(NSSTest.class);
+  private static Vertx vertx;
+  private static ServiceEndpointContext endpointContext;
   private UsageDataProvider provider;
   private AggregatorSetting aggregator;
 
@@ -56,6 +63,17 @@ public class NSSTest {
   private static final String endDate = "2016-03-31";
   private static final String beginDate = "2016-03-01";
 
+  @BeforeClass
+  public static void beforeClass() {
+    vertx = Vertx.vertx();
+    endpointContext = ServiceEndpointContext.init(vertx, vertx.getOrCreateContext());
+  }
+
+  @AfterClass
+  public static void afterClass(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
   @Before
   public void setup() throws IOException {
     provider =
@@ -75,7 +93,7 @@ public class NSSTest {
 
   @Test
   public void fetchSingleReportWithAggregatorValidReport(TestContext context) {
-    final NSS sep = new NSS(provider, aggregator);
+    final NSS sep = new NSS(provider, aggregator, endpointContext);
     final String url = sep.buildURL(reportType, beginDate, endDate);
 
     LOG.info("Creating stub for: " + url);
@@ -109,7 +127,7 @@ public class NSSTest {
 
   @Test
   public void fetchSingleReportWithAggregatorInvalidReport(TestContext context) {
-    final NSS sep = new NSS(provider, aggregator);
+    final NSS sep = new NSS(provider, aggregator, endpointContext);
     final String url = sep.buildURL(reportType, beginDate, endDate);
 
     LOG.info("Creating stub for: " + url);
@@ -134,7 +152,7 @@ public class NSSTest {
 
   @Test
   public void fetchSingleReportWithAggregatorInvalidResponse(TestContext context) {
-    final NSS sep = new NSS(provider, aggregator);
+    final NSS sep = new NSS(provider, aggregator, endpointContext);
     final String url = sep.buildURL(reportType, beginDate, endDate);
 
     LOG.info("Creating stub for: " + url);
@@ -158,7 +176,7 @@ public class NSSTest {
 
   @Test
   public void fetchSingleReportWithAggregatorNoService(TestContext context) {
-    final NSS sep = new NSS(provider, aggregator);
+    final NSS sep = new NSS(provider, aggregator, endpointContext);
 
     wireMockRule.stop();
 
@@ -175,6 +193,15 @@ public class NSSTest {
         });
   }
 
+  @Test
+  public void testUnmarshal() throws Exception {
+    URL resource = Resources.getResource("__files/nss-report-2016-03.xml");
+    CounterReportResponse expected = JAXB.unmarshal(resource, CounterReportResponse.class);
+    try (InputStream is = resource.openStream()) {
+      assertThat(NSS.unmarshal(is)).isEqualToComparingFieldByFieldRecursively(expected);
+    }
+  }
+
   @Test
   public void testIsValidReport() {
     CounterReportResponse reportValid =
@@ -202,7 +229,7 @@ public class NSSTest {
           public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {}
         });
 
-    final NSS sep = new NSS(provider, aggregator);
+    final NSS sep = new NSS(provider, aggregator, endpointContext);
 
     wireMockRule.stubFor(any(anyUrl()).willReturn(aResponse().withStatus(404)));
     wireMockProxyRule.stubFor(any(anyUrl()).willReturn(aResponse().withStatus(404)));
@@ -0,0 +1,90 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.Json;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Objects;
+import java.util.Optional;
+import org.folio.rest.jaxrs.model.Report;
+
+/**
+ * {@link ServiceEndpoint} rebuilding reports from responses stored in the {@link ResponseArchive},
+ * without sending any request. Reports are rebuilt month by month, decoding runs on the {@link
+ * ServiceExecutors} pool of the service type.
+ */
+public class ArchivedServiceEndpoint implements ServiceEndpoint {
+
+  /** Converts an archived response into the report of a single month. */
+  @FunctionalInterface
+  public interface Decoder {
+
+    /**
+     * @param entry archived response
+     * @param month month to return the report for, within the months covered by the response
+     * @return the report, {@code null} if the response has no data for the month
+     */
+    Report decode(ResponseArchive.Entry entry, YearMonth month) throws Exception;
+  }
+
+  private final ResponseArchive archive;
+  private final String endpointKey;
+  private final String executor;
+  private final Decoder decoder;
+
+  /**
+   * @param endpointKey key the endpoint stored its responses with
+   * @param executor name of the {@link ServiceExecutors} pool to decode on
+   * @param decoder converts an archived response into a report
+   */
+  public ArchivedServiceEndpoint(String endpointKey, String executor, Decoder decoder) {
+    this(ResponseArchive.get(), endpointKey, executor, decoder);
+  }
+
+  ArchivedServiceEndpoint(
+      ResponseArchive archive, String endpointKey, String executor, Decoder decoder) {
+    this.archive = Objects.requireNonNull(archive);
+    this.endpointKey = Objects.requireNonNull(endpointKey);
+    this.executor = Objects.requireNonNull(executor);
+    this.decoder = Objects.requireNonNull(decoder);
+  }
+
+  @Override
+  public boolean isValidReport(String report) {
+    return false;
+  }
+
+  @Override
+  public Future<String> fetchSingleReport(String report, String beginDate, String endDate) {
+    return fetchReport(report, beginDate, endDate).map(Json::encode);
+  }
+
+  @Override
+  public Future<Report> fetchReport(String report, String beginDate, String endDate) {
+    YearMonth month = YearMonth.from(LocalDate.parse(beginDate));
+    if (!month.equals(YearMonth.from(LocalDate.parse(endDate)))) {
+      return Future.failedFuture(
+          "Only single months can be rebuilt from the archive: " + beginDate + " - " + endDate);
+    }
+    return ServiceExecutors.executeBlocking(
+        executor,
+        (Promise<Report> promise) -> {
+          Optional<ResponseArchive.Entry> entry = archive.load(endpointKey, report, month);
+          if (!entry.isPresent()) {
+            promise.fail("Report not found in archive: " + report + " " + month);
+            return;
+          }
+          try {
+            Report result = decoder.decode(entry.get(), month);
+            if (result == null) {
+              promise.fail("No data for " + report + " " + month + " in archived response");
+            } else {
+              promise.complete(result);
+            }
+          } catch (Exception e) {
+            promise.fail(e);
+          }
+        });
+  }
+}
@@ -0,0 +1,105 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import java.io.InputStream;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.niso.schemas.counter.DateRange;
+import org.niso.schemas.counter.Report;
+import org.niso.schemas.counter.ReportItem;
+import org.niso.schemas.sushi.Exception;
+import org.niso.schemas.sushi.counter.CounterReportResponse;
+import org.olf.erm.usage.counter41.Counter4Utils;
+
+/**
+ * Reads COUNTER 4.1 responses for endpoints using the {@code mod-erm-usage-counter41} model.
+ * Responses are unmarshalled with a shared {@link JAXBContext} from a StAX reader, which does not
+ * resolve DTDs or external entities.
+ */
+public class Counter41Reports {
+
+  /**
+   * Returns the report of a response.
+   *
+   * @throws SushiException if the response contains exceptions or no report
+   */
+  public static Report getReport(CounterReportResponse reportResponse) {
+    List<Exception> exceptions = Counter4Utils.getExceptions(reportResponse);
+    if (exceptions.isEmpty()
+        && reportResponse.getReport() != null
+        && !reportResponse.getReport().getReport().isEmpty()) {
+      return reportResponse.getReport().getReport().get(0);
+    }
+    throw new SushiException(
+        "Report not valid: " + Counter4Utils.getErrorMessages(exceptions),
+        200,
+        exceptions.stream().map(Exception::getNumber).collect(Collectors.toList()));
+  }
+
+  /** Creates a reader for the given stream. The reader must be closed by the caller. */
+  public static XMLStreamReader createReader(InputStream is) throws XMLStreamException {
+    return Jaxb.INPUT_FACTORY.createXMLStreamReader(is);
+  }
+
+  /** Unmarshals the {@link CounterReportResponse} at the current element of the reader. */
+  public static CounterReportResponse unmarshal(XMLStreamReader reader) throws JAXBException {
+    return Jaxb.CONTEXT
+        .createUnmarshaller()
+        .unmarshal(reader, CounterReportResponse.class)
+        .getValue();
+  }
+
+  /**
+   * Splits a report covering several months into one report per month with the {@link
+   * MonthlySplitter}.
+   *
+   * @param converter converts the report, called once for every month
+   */
+  public static Map<YearMonth, org.folio.rest.jaxrs.model.Report> splitByMonth(
+      Report report,
+      YearMonth begin,
+      YearMonth end,
+      Function<Report, org.folio.rest.jaxrs.model.Report> converter) {
+    return MonthlySplitter.split(
+        report.getCustomer().stream().map(c -> c.getReportItems()).collect(Collectors.toList()),
+        ReportItem::getItemPerformance,
+        m -> toYearMonth(m.getPeriod()),
+        begin,
+        end,
+        () -> converter.apply(report));
+  }
+
+  static YearMonth toYearMonth(DateRange period) {
+    if (period == null || period.getBegin() == null) {
+      return null;
+    }
+    return YearMonth.of(period.getBegin().getYear(), period.getBegin().getMonth());
+  }
+
+  private static class Jaxb {
+    private static final JAXBContext CONTEXT = createContext();
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private static JAXBContext createContext() {
+      try {
+        return JAXBContext.newInstance(CounterReportResponse.class);
+      } catch (JAXBException e) {
+        throw new IllegalStateException("Error creating JAXB context", e);
+      }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+      XMLInputFactory factory = XMLInputFactory.newFactory();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      return factory;
+    }
+  }
+}
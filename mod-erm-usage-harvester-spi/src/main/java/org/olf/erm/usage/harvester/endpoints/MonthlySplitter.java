@@ -0,0 +1,87 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Splits a report covering several months into one report per month. The metric lists of the
+ * report items are filtered in place for every month, the report is converted and the lists are
+ * restored afterwards. Items without metrics for a month are left out of that month's report,
+ * months without any metrics are left out of the result.
+ *
+ * <p>The report must not be accessed by other threads while it is split.
+ */
+public class MonthlySplitter {
+
+  /**
+   * @param itemLists lists holding the items of the report
+   * @param metrics returns the (modifiable) list of metrics of an item
+   * @param monthOf returns the month a metric belongs to
+   * @param begin first month
+   * @param end last month (inclusive)
+   * @param converter converts the report in its current, filtered state
+   * @return converted reports by month, for the months of the range that have metrics
+   */
+  public static <I, M, T> Map<YearMonth, T> split(
+      List<List<I>> itemLists,
+      Function<I, List<M>> metrics,
+      Function<M, YearMonth> monthOf,
+      YearMonth begin,
+      YearMonth end,
+      Supplier<T> converter) {
+    List<List<I>> origItems =
+        itemLists.stream().map(ArrayList::new).collect(Collectors.toList());
+    Map<I, List<M>> origMetrics = new IdentityHashMap<>();
+    itemLists.forEach(
+        items -> items.forEach(i -> origMetrics.put(i, new ArrayList<>(metrics.apply(i)))));
+
+    Map<YearMonth, T> result = new TreeMap<>();
+    try {
+      for (YearMonth month = begin; !month.isAfter(end); month = month.plusMonths(1)) {
+        boolean hasMetrics = false;
+        for (int k = 0; k < itemLists.size(); k++) {
+          List<I> items = itemLists.get(k);
+          items.clear();
+          for (I item : origItems.get(k)) {
+            List<M> itemMetrics = metrics.apply(item);
+            itemMetrics.clear();
+            for (M metric : origMetrics.get(item)) {
+              if (Objects.equals(month, monthOf.apply(metric))) {
+                itemMetrics.add(metric);
+              }
+            }
+            if (!itemMetrics.isEmpty()) {
+              items.add(item);
+            }
+          }
+          hasMetrics |= !items.isEmpty();
+        }
+        if (hasMetrics) {
+          result.put(month, converter.get());
+        }
+      }
+    } finally {
+      for (int k = 0; k < itemLists.size(); k++) {
+        itemLists.get(k).clear();
+        itemLists.get(k).addAll(origItems.get(k));
+      }
+      origMetrics.forEach(
+          (item, orig) -> {
+            List<M> itemMetrics = metrics.apply(item);
+            itemMetrics.clear();
+            itemMetrics.addAll(orig);
+          });
+    }
+    return result;
+  }
+
+  private MonthlySplitter() {}
+}
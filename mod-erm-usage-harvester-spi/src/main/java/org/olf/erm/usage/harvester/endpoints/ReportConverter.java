@@ -0,0 +1,38 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import java.io.IOException;
+import java.util.Objects;
+import org.folio.rest.jaxrs.model.Report;
+
+/**
+ * Converts a report model of a COUNTER library into a {@link Report}. The model is serialized with
+ * the mapper of its library into a {@link TokenBuffer}, which is read back by the Vert.x mapper, so
+ * the report is never held as a JSON String.
+ */
+public class ReportConverter {
+
+  private final ObjectMapper mapper;
+
+  /** @param mapper mapper serializing the report model */
+  public ReportConverter(ObjectMapper mapper) {
+    this.mapper = Objects.requireNonNull(mapper);
+  }
+
+  /** @throws DecodeException if the report cannot be converted */
+  public Report convert(Object report) {
+    TokenBuffer buffer = new TokenBuffer(mapper, false);
+    try {
+      mapper.writeValue(buffer, report);
+      try (JsonParser parser = buffer.asParser(Json.mapper)) {
+        return Json.mapper.readValue(parser, Report.class);
+      }
+    } catch (IOException e) {
+      throw new DecodeException("Failed to convert report: " + e.getMessage());
+    }
+  }
+}
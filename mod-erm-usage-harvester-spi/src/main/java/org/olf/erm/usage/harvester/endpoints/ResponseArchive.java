@@ -0,0 +1,289 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional on-disk archive of raw SUSHI responses, so reports can be rebuilt without requesting
+ * them again, see {@link ServiceEndpoint#fromArchive()}. Responses are stored gzip compressed and
+ * content addressed, identical responses are stored once. An index entry for every month covered
+ * by a response points to it. Files older than the TTL are evicted, and the oldest files once the
+ * archive exceeds its max size.
+ *
+ * <p>Options are read from the {@code responseArchive} object of the module configuration. The
+ * archive is disabled unless {@code path} is set:
+ *
+ * <ul>
+ *   <li>{@code path} - directory to store responses in
+ *   <li>{@code ttlDays} - days after which a response is evicted (default: 90)
+ *   <li>{@code maxSizeMb} - max size of all stored responses (default: 1024)
+ * </ul>
+ */
+public class ResponseArchive {
+
+  static final String CONFIG_KEY = "responseArchive";
+  static final int DEFAULT_TTL_DAYS = 90;
+  static final long DEFAULT_MAX_SIZE_MB = 1024;
+  static final long EVICTION_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResponseArchive.class);
+  private static final String OBJECTS = "objects";
+  private static final String INDEX = "index";
+
+  private final Path root;
+  private final long ttlMillis;
+  private final long maxSizeBytes;
+  private final AtomicLong lastEviction = new AtomicLong();
+  private final AtomicLong stored = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evicted = new AtomicLong();
+
+  private static class Holder {
+    private static final ResponseArchive INSTANCE =
+        new ResponseArchive(ServiceEndpointContext.getModuleConfig(CONFIG_KEY));
+  }
+
+  ResponseArchive(JsonObject config) {
+    String path = config.getString("path");
+    this.root = path == null || path.isEmpty() ? null : Paths.get(path);
+    this.ttlMillis = TimeUnit.DAYS.toMillis(config.getInteger("ttlDays", DEFAULT_TTL_DAYS));
+    this.maxSizeBytes = config.getLong("maxSizeMb", DEFAULT_MAX_SIZE_MB) * 1024 * 1024;
+  }
+
+  public static ResponseArchive get() {
+    return Holder.INSTANCE;
+  }
+
+  public boolean isEnabled() {
+    return root != null;
+  }
+
+  /**
+   * Stores a raw response. Errors are logged, a response that cannot be archived does not fail the
+   * fetch.
+   *
+   * @param endpointKey identifies service URL and credentials of the endpoint
+   * @param report report name
+   * @param begin first month covered by the response
+   * @param end last month covered by the response
+   * @param content raw response
+   */
+  public void store(
+      String endpointKey, String report, YearMonth begin, YearMonth end, byte[] content) {
+    if (!isEnabled()) {
+      return;
+    }
+    try {
+      String hash = Hashing.sha256().hashBytes(content).toString();
+      Path object = getPath(OBJECTS, hash + ".gz");
+      if (Files.exists(object)) {
+        Files.setLastModifiedTime(object, FileTime.fromMillis(System.currentTimeMillis()));
+      } else {
+        write(object, content, true);
+      }
+      byte[] entry =
+          String.join(" ", hash, begin.toString(), end.toString())
+              .getBytes(StandardCharsets.UTF_8);
+      for (YearMonth month = begin; !month.isAfter(end); month = month.plusMonths(1)) {
+        write(getPath(INDEX, getIndexKey(endpointKey, report, month)), entry, false);
+      }
+      stored.incrementAndGet();
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Error archiving response for report {}: {}", report, e.getMessage());
+    }
+
+    long last = lastEviction.get();
+    long now = System.currentTimeMillis();
+    if (now - last > EVICTION_INTERVAL_MILLIS && lastEviction.compareAndSet(last, now)) {
+      evict();
+    }
+  }
+
+  /**
+   * Returns the archived response covering the given month.
+   *
+   * @param endpointKey identifies service URL and credentials of the endpoint
+   * @param report report name
+   * @param month month
+   * @return the archived response, empty if there is none
+   */
+  public Optional<Entry> load(String endpointKey, String report, YearMonth month) {
+    if (!isEnabled()) {
+      return Optional.empty();
+    }
+    Path index = getPath(INDEX, getIndexKey(endpointKey, report, month));
+    try {
+      String[] entry = new String(Files.readAllBytes(index), StandardCharsets.UTF_8).split(" ");
+      Path object = getPath(OBJECTS, entry[0] + ".gz");
+      try (InputStream is = new GZIPInputStream(Files.newInputStream(object))) {
+        byte[] content = ByteStreams.toByteArray(is);
+        hits.incrementAndGet();
+        return Optional.of(
+            new Entry(content, YearMonth.parse(entry[1]), YearMonth.parse(entry[2])));
+      } catch (NoSuchFileException e) {
+        // response has been evicted
+        Files.deleteIfExists(index);
+      }
+    } catch (NoSuchFileException e) {
+      // not archived
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Error reading archived response for report {}: {}", report, e.getMessage());
+    }
+    misses.incrementAndGet();
+    return Optional.empty();
+  }
+
+  /** Deletes expired files, and the oldest responses while the archive exceeds its max size. */
+  public synchronized void evict() {
+    if (!isEnabled()) {
+      return;
+    }
+    long expired = System.currentTimeMillis() - ttlMillis;
+    try {
+      for (Path index : list(INDEX)) {
+        if (Files.getLastModifiedTime(index).toMillis() < expired) {
+          Files.deleteIfExists(index);
+        }
+      }
+
+      List<Path> objects = list(OBJECTS);
+      List<Path> remaining = new ArrayList<>();
+      long size = 0;
+      for (Path object : objects) {
+        if (Files.getLastModifiedTime(object).toMillis() < expired) {
+          delete(object);
+        } else {
+          remaining.add(object);
+          size += Files.size(object);
+        }
+      }
+      remaining.sort(Comparator.comparing(ResponseArchive::lastModified));
+      for (Path object : remaining) {
+        if (size <= maxSizeBytes) {
+          break;
+        }
+        size -= Files.size(object);
+        delete(object);
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Error evicting archived responses: {}", e.getMessage());
+    }
+  }
+
+  public JsonObject getStatistics() {
+    return new JsonObject()
+        .put("enabled", isEnabled())
+        .put("stored", stored.get())
+        .put("hits", hits.get())
+        .put("misses", misses.get())
+        .put("evicted", evicted.get());
+  }
+
+  private static String getIndexKey(String endpointKey, String report, YearMonth month) {
+    return Hashing.sha256()
+        .hashString(String.join("|", endpointKey, report, month.toString()), StandardCharsets.UTF_8)
+        .toString();
+  }
+
+  private Path getPath(String type, String name) {
+    return root.resolve(type).resolve(name.substring(0, 2)).resolve(name);
+  }
+
+  private List<Path> list(String type) throws IOException {
+    Path dir = root.resolve(type);
+    if (!Files.isDirectory(dir)) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files
+          .filter(Files::isRegularFile)
+          .filter(p -> !p.getFileName().toString().startsWith("."))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private void delete(Path object) throws IOException {
+    if (Files.deleteIfExists(object)) {
+      evicted.incrementAndGet();
+    }
+  }
+
+  private static long lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  /** Writes a file atomically, so readers never see a partially written file. */
+  private static void write(Path file, byte[] content, boolean gzip) throws IOException {
+    Files.createDirectories(file.getParent());
+    Path tmp = Files.createTempFile(file.getParent(), ".", ".tmp");
+    try {
+      try (OutputStream os =
+          gzip ? new GZIPOutputStream(Files.newOutputStream(tmp)) : Files.newOutputStream(tmp)) {
+        os.write(content);
+      }
+      try {
+        Files.move(
+            tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /** An archived response and the months it covers. */
+  public static class Entry {
+    private final byte[] content;
+    private final YearMonth begin;
+    private final YearMonth end;
+
+    Entry(byte[] content, YearMonth begin, YearMonth end) {
+      this.content = content;
+      this.begin = begin;
+      this.end = end;
+    }
+
+    public byte[] getContent() {
+      return content;
+    }
+
+    public YearMonth getBegin() {
+      return begin;
+    }
+
+    public YearMonth getEnd() {
+      return end;
+    }
+  }
+}
@@ -1,16 +1,21 @@
 package org.olf.erm.usage.harvester.endpoints;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
+import io.vertx.core.json.Json;
 import java.net.Proxy;
 import java.net.ProxySelector;
 import java.net.URI;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.ServiceLoader;
+import java.util.TreeMap;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
+import org.folio.rest.jaxrs.model.Report;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,14 +26,83 @@ public interface ServiceEndpoint {
 
   Future<String> fetchSingleReport(String report, String beginDate, String endDate);
 
+  /**
+   * Fetches a report and returns it decoded. The default implementation decodes the JSON returned
+   * by {@link #fetchSingleReport(String, String, String)}. Implementations should override this
+   * method to decode the response once, without building the whole report as a {@code String}.
+   *
+   * @return future completing with the report, or with {@code null} if no report is available
+   */
+  default Future<Report> fetchReport(String report, String beginDate, String endDate) {
+    return fetchSingleReport(report, beginDate, endDate)
+        .map(s -> s == null ? null : Json.decodeValue(s, Report.class));
+  }
+
+  /**
+   * Returns {@code true} if {@link #fetchReportRange(String, YearMonth, YearMonth)} fetches a
+   * range of months with a single request.
+   */
+  default boolean isRangeSupported() {
+    return false;
+  }
+
+  /**
+   * Fetches a report for a range of months and splits it into one report per month. The default
+   * implementation calls {@link #fetchReport(String, String, String)} for every month.
+   *
+   * @param report report type
+   * @param begin first month
+   * @param end last month (inclusive)
+   * @return future completing with a report for every month of the range, failing if the range
+   *     could not be fetched
+   */
+  default Future<Map<YearMonth, Report>> fetchReportRange(
+      String report, YearMonth begin, YearMonth end) {
+    Map<YearMonth, Report> result = new TreeMap<>();
+    @SuppressWarnings("rawtypes")
+    List<Future> futures = new ArrayList<>();
+    for (YearMonth month = begin; !month.isAfter(end); month = month.plusMonths(1)) {
+      final YearMonth m = month;
+      futures.add(
+          fetchReport(report, m.atDay(1).toString(), m.atEndOfMonth().toString())
+              .map(
+                  r -> {
+                    synchronized (result) {
+                      result.put(m, r);
+                    }
+                    return r;
+                  }));
+    }
+    return CompositeFuture.all(futures).map(cf -> result);
+  }
+
+  /**
+   * Returns an endpoint rebuilding reports from the responses this endpoint stored in the {@link
+   * ResponseArchive}, without sending any request.
+   *
+   * @return the endpoint or {@code null} if this endpoint does not archive its responses
+   */
+  default ServiceEndpoint fromArchive() {
+    return null;
+  }
+
   static List<ServiceEndpointProvider> getAvailableProviders() {
-    ServiceLoader<ServiceEndpointProvider> loader =
-        ServiceLoader.load(ServiceEndpointProvider.class);
-    return Lists.newArrayList(loader.iterator());
+    return ServiceEndpointRegistry.get().getProviders();
   }
 
-  static ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  /**
+   * Creates the endpoint for the service type of the aggregator, or of the provider if no
+   * aggregator is given.
+   *
+   * @param provider provider
+   * @param aggregator aggregator setting, or {@code null}
+   * @param context shared resources
+   * @return the endpoint or {@code null} if there is no implementation for the service type
+   */
+  static ServiceEndpoint create(
+      UsageDataProvider provider, AggregatorSetting aggregator, ServiceEndpointContext context) {
     Objects.requireNonNull(provider);
+    Objects.requireNonNull(context);
 
     final Logger LOG = LoggerFactory.getLogger(ServiceEndpoint.class);
 
@@ -49,12 +123,9 @@ public interface ServiceEndpoint {
       return null;
     }
 
-    ServiceLoader<ServiceEndpointProvider> loader =
-        ServiceLoader.load(ServiceEndpointProvider.class);
-    for (ServiceEndpointProvider p : loader) {
-      if (p.getServiceType().equals(serviceType)) {
-        return p.create(provider, aggregator);
-      }
+    ServiceEndpointProvider p = ServiceEndpointRegistry.get().getProvider(serviceType);
+    if (p != null) {
+      return p.create(provider, aggregator, context);
     }
 
     LOG.error("No implementation found for serviceType '{}'", serviceType);
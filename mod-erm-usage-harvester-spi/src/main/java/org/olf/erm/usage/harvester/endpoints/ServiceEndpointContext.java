@@ -0,0 +1,153 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Runtime resources shared by all {@link ServiceEndpoint}s of the harvester: the owning {@link
+ * Vertx} instance, HTTP clients and the {@link ServiceExecutors} pools. Endpoints must use these
+ * instead of creating their own Vert.x instance or clients. One context exists per {@link Vertx}
+ * instance, it is initialized with a Vert.x context living as long as the module.
+ */
+public class ServiceEndpointContext {
+
+  private static final Map<Vertx, ServiceEndpointContext> INSTANCES = new ConcurrentHashMap<>();
+  private static volatile JsonObject moduleConfig = new JsonObject();
+
+  private final Vertx vertx;
+  private final Context owner;
+  // guarded by this
+  private final Map<String, HttpClient> httpClients = new HashMap<>();
+  private final Map<String, List<Handler<HttpClient>>> pendingClients = new HashMap<>();
+
+  private ServiceEndpointContext(Vertx vertx, Context owner) {
+    this.vertx = Objects.requireNonNull(vertx);
+    this.owner = Objects.requireNonNull(owner);
+  }
+
+  /**
+   * Sets the module configuration, so endpoints can read their settings from it. Should be called
+   * at deploy time, before any endpoint is created.
+   */
+  public static void configure(JsonObject config) {
+    moduleConfig = config == null ? new JsonObject() : config.copy();
+  }
+
+  /** Returns the object stored under the given key of the module configuration, never null. */
+  public static JsonObject getModuleConfig(String key) {
+    return moduleConfig.getJsonObject(key, new JsonObject());
+  }
+
+  /**
+   * Initializes the context of the given {@link Vertx} instance, does nothing if it already
+   * exists. Shared HTTP clients are created on the given Vert.x context, so they are not closed
+   * before it is, e.g. when a verticle using them is undeployed.
+   *
+   * @param vertx the Vert.x instance
+   * @param owner a Vert.x context living as long as the module
+   * @return the context of the given {@link Vertx} instance
+   */
+  public static ServiceEndpointContext init(Vertx vertx, Context owner) {
+    return INSTANCES.computeIfAbsent(vertx, v -> new ServiceEndpointContext(v, owner));
+  }
+
+  /**
+   * Returns the context of the given {@link Vertx} instance.
+   *
+   * @throws IllegalStateException if the context was not initialized with {@link #init(Vertx,
+   *     Context)}
+   */
+  public static ServiceEndpointContext get(Vertx vertx) {
+    ServiceEndpointContext context = INSTANCES.get(vertx);
+    if (context == null) {
+      throw new IllegalStateException("ServiceEndpointContext not initialized");
+    }
+    return context;
+  }
+
+  public Vertx getVertx() {
+    return vertx;
+  }
+
+  /** Returns the Vert.x context living as long as the module, as passed to {@link #init}. */
+  public Context getOwner() {
+    return owner;
+  }
+
+  /**
+   * Returns the shared {@link HttpClient} for the given key, creating it with the given options if
+   * necessary. New clients are created on the context passed to {@link #init(Vertx, Context)}.
+   * Clients must not be closed by endpoints.
+   *
+   * @param key identifies the client, e.g. service type and proxy
+   * @param options options for a new client, only called if there is no client for the key yet
+   * @return future completing on the context of the caller, or on the owning context if there is
+   *     no current context
+   */
+  public Future<HttpClient> getHttpClient(String key, Supplier<HttpClientOptions> options) {
+    Context caller = Vertx.currentContext();
+    Promise<HttpClient> promise = Promise.promise();
+    Handler<HttpClient> handler =
+        client -> {
+          if (caller == null || caller == owner) {
+            promise.complete(client);
+          } else {
+            caller.runOnContext(v -> promise.complete(client));
+          }
+        };
+
+    synchronized (this) {
+      HttpClient client = httpClients.get(key);
+      if (client != null) {
+        return Future.succeededFuture(client);
+      }
+      List<Handler<HttpClient>> pending = pendingClients.get(key);
+      if (pending != null) {
+        pending.add(handler);
+        return promise.future();
+      }
+      pendingClients.put(key, new ArrayList<>(Collections.singletonList(handler)));
+    }
+
+    HttpClientOptions clientOptions = options.get();
+    owner.runOnContext(
+        v -> {
+          HttpClient client = vertx.createHttpClient(clientOptions);
+          List<Handler<HttpClient>> pending;
+          synchronized (this) {
+            httpClients.put(key, client);
+            pending = pendingClients.remove(key);
+          }
+          pending.forEach(h -> h.handle(client));
+        });
+    return promise.future();
+  }
+
+  /** Returns the bounded executor with the given name, see {@link ServiceExecutors#get(String)}. */
+  public ExecutorService getExecutor(String name) {
+    return ServiceExecutors.get(name);
+  }
+
+  /**
+   * Runs blocking code on the executor with the given name, see {@link
+   * ServiceExecutors#executeBlocking(String, Handler)}.
+   */
+  public <T> Future<T> executeBlocking(String name, Handler<Promise<T>> blockingCode) {
+    return ServiceExecutors.executeBlocking(name, blockingCode);
+  }
+}
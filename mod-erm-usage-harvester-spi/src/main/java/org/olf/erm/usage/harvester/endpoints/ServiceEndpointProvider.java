@@ -20,12 +20,23 @@ public interface ServiceEndpointProvider {
     return false;
   }
 
-  ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator);
+  /**
+   * Creates an endpoint using the shared resources of the given context.
+   *
+   * @param aggregator aggregator the provider is harvested through, {@code null} if none
+   */
+  ServiceEndpoint create(
+      UsageDataProvider provider, AggregatorSetting aggregator, ServiceEndpointContext context);
 
   default List<String> getConfigurationParameters() {
     return Collections.emptyList();
   }
 
+  /** Returns statistics of resources shared by the endpoints of this provider, for logging. */
+  default JsonObject getStatistics() {
+    return new JsonObject();
+  }
+
   default JsonObject toJson() {
     JsonObject result =
         new JsonObject()
@@ -0,0 +1,61 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the available {@link ServiceEndpointProvider}s by service type. The classpath is
+ * scanned once, on first use; call {@link #init()} to do that at deploy time.
+ */
+public class ServiceEndpointRegistry {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ServiceEndpointRegistry.class);
+
+  private final Map<String, ServiceEndpointProvider> providers;
+
+  private ServiceEndpointRegistry(Iterable<ServiceEndpointProvider> loaded) {
+    Map<String, ServiceEndpointProvider> map = new LinkedHashMap<>();
+    for (ServiceEndpointProvider p : loaded) {
+      ServiceEndpointProvider previous = map.putIfAbsent(p.getServiceType(), p);
+      if (previous != null) {
+        LOG.warn(
+            "Ignoring {} for serviceType '{}', already provided by {}",
+            p.getClass().getName(),
+            p.getServiceType(),
+            previous.getClass().getName());
+      }
+    }
+    this.providers = Collections.unmodifiableMap(map);
+  }
+
+  private static class Holder {
+    private static final ServiceEndpointRegistry INSTANCE =
+        new ServiceEndpointRegistry(ServiceLoader.load(ServiceEndpointProvider.class));
+  }
+
+  /** Returns the registry, scanning the classpath if this is the first call. */
+  public static ServiceEndpointRegistry get() {
+    return Holder.INSTANCE;
+  }
+
+  /** Scans the classpath for {@link ServiceEndpointProvider}s, if not done yet. */
+  public static void init() {
+    LOG.info("Available service types: {}", get().providers.keySet());
+  }
+
+  /** Returns all providers in the order they were found on the classpath. */
+  public List<ServiceEndpointProvider> getProviders() {
+    return new ArrayList<>(providers.values());
+  }
+
+  /** Returns the provider for the given service type or {@code null} if there is none. */
+  public ServiceEndpointProvider getProvider(String serviceType) {
+    return serviceType == null ? null : providers.get(serviceType);
+  }
+}
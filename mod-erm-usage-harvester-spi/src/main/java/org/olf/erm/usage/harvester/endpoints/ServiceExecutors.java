@@ -0,0 +1,158 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named, bounded thread pools for blocking calls to SUSHI services. Every service type gets its own
+ * pool, so a slow service can neither block the Vert.x worker pool nor the pools of other service
+ * types. Tasks are rejected once all threads are busy and the queue is full.
+ *
+ * <p>Sizes are read from the {@code serviceExecutors} object of the module configuration, see
+ * {@link #configure(JsonObject)}. {@code default} applies to all pools, other keys override it for
+ * a single pool:
+ *
+ * <ul>
+ *   <li>{@code poolSize} - max number of threads (default: 8)
+ *   <li>{@code queueSize} - max number of waiting tasks (default: 100)
+ * </ul>
+ */
+public class ServiceExecutors {
+
+  static final String CONFIG_KEY = "serviceExecutors";
+  static final int DEFAULT_POOL_SIZE = 8;
+  static final int DEFAULT_QUEUE_SIZE = 100;
+
+  private static final Map<String, Pool> POOLS = new ConcurrentHashMap<>();
+  private static volatile JsonObject config = new JsonObject();
+
+  private ServiceExecutors() {}
+
+  /**
+   * Sets the module configuration. Only applies to pools that are created afterwards, so this
+   * should be called at deploy time.
+   */
+  public static void configure(JsonObject moduleConfig) {
+    config =
+        moduleConfig == null
+            ? new JsonObject()
+            : moduleConfig.getJsonObject(CONFIG_KEY, new JsonObject());
+  }
+
+  /** Returns the pool with the given name, creating it if necessary. */
+  public static ExecutorService get(String name) {
+    return POOLS.computeIfAbsent(name, Pool::new).executor;
+  }
+
+  /**
+   * Runs blocking code on the pool with the given name. The returned future is completed on the
+   * context of the caller, or on the pool thread if there is no current context.
+   *
+   * @param name name of the pool
+   * @param blockingCode code to run, completing the given promise
+   * @return future failing with a {@link RejectedExecutionException} if the pool is saturated
+   */
+  public static <T> Future<T> executeBlocking(String name, Handler<Promise<T>> blockingCode) {
+    Context context = Vertx.currentContext();
+    Promise<T> result = Promise.promise();
+    Promise<T> blocking = Promise.promise();
+    blocking
+        .future()
+        .setHandler(
+            ar -> {
+              if (context == null) {
+                result.handle(ar);
+              } else {
+                context.runOnContext(v -> result.handle(ar));
+              }
+            });
+
+    try {
+      get(name)
+          .execute(
+              () -> {
+                try {
+                  blockingCode.handle(blocking);
+                } catch (Throwable t) {
+                  blocking.tryFail(t);
+                }
+              });
+    } catch (RejectedExecutionException e) {
+      return Future.failedFuture(e);
+    }
+    return result.future();
+  }
+
+  /** Returns saturation metrics of all pools, by name. */
+  public static JsonObject getStatistics() {
+    JsonObject result = new JsonObject();
+    POOLS.forEach((name, pool) -> result.put(name, pool.getStatistics()));
+    return result;
+  }
+
+  private static class Pool {
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final int queueSize;
+    private final AtomicLong rejected = new AtomicLong();
+
+    Pool(String name) {
+      this.name = name;
+      JsonObject defaults = config.getJsonObject("default", new JsonObject());
+      JsonObject cfg = config.getJsonObject(name, new JsonObject());
+      int poolSize =
+          Math.max(
+              1, cfg.getInteger("poolSize", defaults.getInteger("poolSize", DEFAULT_POOL_SIZE)));
+      this.queueSize =
+          Math.max(
+              1,
+              cfg.getInteger("queueSize", defaults.getInteger("queueSize", DEFAULT_QUEUE_SIZE)));
+
+      AtomicInteger threadCount = new AtomicInteger();
+      executor =
+          new ThreadPoolExecutor(
+              poolSize,
+              poolSize,
+              60,
+              TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(queueSize),
+              r -> {
+                Thread t = new Thread(r, "sushi-" + name + "-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+              },
+              (r, e) -> {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(
+                    String.format(
+                        "Executor %s is saturated (%s threads, %s queued tasks)",
+                        this.name, e.getPoolSize(), e.getQueue().size()));
+              });
+      executor.allowCoreThreadTimeOut(true);
+    }
+
+    JsonObject getStatistics() {
+      return new JsonObject()
+          .put("poolSize", executor.getMaximumPoolSize())
+          .put("queueSize", queueSize)
+          .put("activeThreads", executor.getActiveCount())
+          .put("largestPoolSize", executor.getLargestPoolSize())
+          .put("queued", executor.getQueue().size())
+          .put("completed", executor.getCompletedTaskCount())
+          .put("rejected", rejected.get());
+    }
+  }
+}
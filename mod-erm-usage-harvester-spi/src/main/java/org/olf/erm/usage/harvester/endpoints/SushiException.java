@@ -0,0 +1,43 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Failure of a SUSHI request, carrying the HTTP status code of the response and the numbers of
+ * the COUNTER exceptions it contained, so callers do not have to parse the message.
+ */
+public class SushiException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int statusCode;
+  private final List<Integer> exceptionCodes;
+
+  /**
+   * @param message message, stored as failed reason of the report
+   * @param statusCode HTTP status code of the response, {@code 0} if unknown
+   * @param exceptionCodes numbers of the COUNTER exceptions of the response
+   */
+  public SushiException(String message, int statusCode, List<Integer> exceptionCodes) {
+    this(message, statusCode, exceptionCodes, null);
+  }
+
+  public SushiException(
+      String message, int statusCode, List<Integer> exceptionCodes, Throwable cause) {
+    super(message, cause);
+    this.statusCode = statusCode;
+    this.exceptionCodes =
+        exceptionCodes == null
+            ? Collections.emptyList()
+            : Collections.unmodifiableList(exceptionCodes);
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  public List<Integer> getExceptionCodes() {
+    return exceptionCodes;
+  }
+}
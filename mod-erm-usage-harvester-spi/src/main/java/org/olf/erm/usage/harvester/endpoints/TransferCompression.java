@@ -0,0 +1,182 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import com.google.common.io.CountingInputStream;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compressed transfer of SUSHI responses. All service endpoints request {@value #ACCEPT_ENCODING}
+ * encoded responses, unless compression is disabled for the host, and decode them with {@link
+ * #decode(String, String, InputStream)}, which also records the number of bytes on the wire and
+ * after decoding.
+ *
+ * <p>Options are read from the {@code compression} object of the module configuration:
+ *
+ * <ul>
+ *   <li>{@code enabled} - request compressed responses (default: true)
+ *   <li>{@code disabledHosts} - hosts to request uncompressed responses from
+ * </ul>
+ */
+public class TransferCompression {
+
+  public static final String ACCEPT_ENCODING = "gzip, deflate";
+  static final String CONFIG_KEY = "compression";
+
+  private static final Map<String, Counters> COUNTERS = new ConcurrentHashMap<>();
+
+  private TransferCompression() {}
+
+  /** Returns whether compressed responses should be requested from the given host. */
+  public static boolean isEnabled(String host) {
+    JsonObject config = ServiceEndpointContext.getModuleConfig(CONFIG_KEY);
+    if (!config.getBoolean("enabled", true)) {
+      return false;
+    }
+    JsonArray disabledHosts = config.getJsonArray("disabledHosts", new JsonArray());
+    return host == null
+        || disabledHosts.stream()
+            .noneMatch(h -> h instanceof String && host.equalsIgnoreCase((String) h));
+  }
+
+  /**
+   * Decodes a response body. Bytes are recorded for the given service type once the returned
+   * stream is read to the end or closed.
+   *
+   * @param serviceType service type of the endpoint, e.g. {@code cs50}
+   * @param contentEncoding value of the {@code Content-Encoding} header, may be null
+   * @param wire response body as received
+   * @throws IOException if the encoding is not supported or the body is not validly encoded
+   */
+  public static InputStream decode(String serviceType, String contentEncoding, InputStream wire)
+      throws IOException {
+    String encoding =
+        contentEncoding == null ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+    CountingInputStream wireCount = new CountingInputStream(wire);
+    InputStream decoded;
+    switch (encoding) {
+      case "":
+      case "identity":
+        decoded = wireCount;
+        break;
+      case "gzip":
+      case "x-gzip":
+        decoded = new GZIPInputStream(wireCount);
+        break;
+      case "deflate":
+        decoded = new InflaterInputStream(wireCount);
+        break;
+      default:
+        throw new IOException("Unsupported content encoding: " + contentEncoding);
+    }
+    return new RecordingInputStream(
+        decoded, wireCount, COUNTERS.computeIfAbsent(serviceType, k -> new Counters()));
+  }
+
+  /** Returns bytes on the wire and after decoding, by service type. */
+  public static JsonObject getStatistics() {
+    JsonObject result = new JsonObject();
+    COUNTERS.forEach((type, counters) -> result.put(type, counters.getStatistics()));
+    return result;
+  }
+
+  private static class Counters {
+    private final AtomicLong responses = new AtomicLong();
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong decodedBytes = new AtomicLong();
+
+    void record(long wire, long decoded, boolean compressed) {
+      responses.incrementAndGet();
+      if (compressed) {
+        compressedResponses.incrementAndGet();
+      }
+      wireBytes.addAndGet(wire);
+      decodedBytes.addAndGet(decoded);
+    }
+
+    JsonObject getStatistics() {
+      long wire = wireBytes.get();
+      long decoded = decodedBytes.get();
+      return new JsonObject()
+          .put("responses", responses.get())
+          .put("compressedResponses", compressedResponses.get())
+          .put("wireBytes", wire)
+          .put("decodedBytes", decoded)
+          .put("ratio", wire == 0 ? 0.0 : Math.round(decoded * 100.0 / wire) / 100.0);
+    }
+  }
+
+  private static class RecordingInputStream extends FilterInputStream {
+    private final CountingInputStream wire;
+    private final Counters counters;
+    private final boolean compressed;
+    private final AtomicBoolean recorded = new AtomicBoolean();
+    private long decoded;
+
+    RecordingInputStream(InputStream in, CountingInputStream wire, Counters counters) {
+      super(in);
+      this.wire = wire;
+      this.counters = counters;
+      this.compressed = in != wire;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        record();
+      } else {
+        decoded++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n < 0) {
+        record();
+      } else {
+        decoded += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      decoded += skipped;
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        record();
+      }
+    }
+
+    private void record() {
+      if (recorded.compareAndSet(false, true)) {
+        counters.record(wire.getCount(), decoded, compressed);
+      }
+    }
+  }
+}
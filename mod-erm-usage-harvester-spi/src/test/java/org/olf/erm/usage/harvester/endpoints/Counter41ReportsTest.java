@@ -0,0 +1,21 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.YearMonth;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import org.junit.Test;
+import org.niso.schemas.counter.DateRange;
+
+public class Counter41ReportsTest {
+
+  @Test
+  public void testToYearMonth() throws DatatypeConfigurationException {
+    DateRange period = new DateRange();
+    period.setBegin(DatatypeFactory.newInstance().newXMLGregorianCalendar("2019-03-01"));
+    assertThat(Counter41Reports.toYearMonth(period)).isEqualTo(YearMonth.of(2019, 3));
+    assertThat(Counter41Reports.toYearMonth(new DateRange())).isNull();
+    assertThat(Counter41Reports.toYearMonth(null)).isNull();
+  }
+}
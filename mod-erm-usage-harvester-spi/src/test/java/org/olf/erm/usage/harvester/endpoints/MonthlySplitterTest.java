@@ -0,0 +1,56 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class MonthlySplitterTest {
+
+  private static class Item {
+    private final String name;
+    private final List<YearMonth> metrics;
+
+    Item(String name, YearMonth... metrics) {
+      this.name = name;
+      this.metrics = new ArrayList<>(Arrays.asList(metrics));
+    }
+  }
+
+  private static String describe(List<Item> items) {
+    return items.stream()
+        .map(i -> i.name + i.metrics.toString())
+        .collect(Collectors.joining(","));
+  }
+
+  @Test
+  public void testSplit() {
+    YearMonth jan = YearMonth.of(2019, 1);
+    YearMonth feb = YearMonth.of(2019, 2);
+    YearMonth mar = YearMonth.of(2019, 3);
+    List<Item> items =
+        new ArrayList<>(Arrays.asList(new Item("a", jan, feb), new Item("b", feb, mar)));
+    String before = describe(items);
+
+    Map<YearMonth, String> result =
+        MonthlySplitter.split(
+            Collections.singletonList(items),
+            i -> i.metrics,
+            m -> m,
+            jan,
+            YearMonth.of(2019, 4),
+            () -> describe(items));
+
+    assertThat(result).containsOnlyKeys(jan, feb, mar);
+    assertThat(result.get(jan)).isEqualTo("a[2019-01]");
+    assertThat(result.get(feb)).isEqualTo("a[2019-02],b[2019-02]");
+    assertThat(result.get(mar)).isEqualTo("b[2019-03]");
+    assertThat(describe(items)).isEqualTo(before);
+  }
+}
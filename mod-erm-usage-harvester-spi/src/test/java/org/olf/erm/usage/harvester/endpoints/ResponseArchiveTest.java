@@ -0,0 +1,164 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.folio.rest.jaxrs.model.Report;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResponseArchiveTest {
+
+  private static final String KEY = "test|https://sushi.example.org|customer";
+  private static final YearMonth JAN = YearMonth.of(2019, 1);
+  private static final YearMonth MAR = YearMonth.of(2019, 3);
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private ResponseArchive archive;
+
+  @Before
+  public void setUp() {
+    archive = createArchive(new JsonObject());
+  }
+
+  private ResponseArchive createArchive(JsonObject config) {
+    return new ResponseArchive(config.put("path", folder.getRoot().getAbsolutePath()));
+  }
+
+  private static byte[] bytes(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private long countFiles(String type) throws IOException {
+    try (Stream<Path> files = Files.walk(folder.getRoot().toPath().resolve(type))) {
+      return files.filter(Files::isRegularFile).count();
+    }
+  }
+
+  private void setLastModified(String type, long millis) throws IOException {
+    try (Stream<Path> files = Files.walk(folder.getRoot().toPath().resolve(type))) {
+      for (Path p : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+        Files.setLastModifiedTime(p, FileTime.fromMillis(millis));
+      }
+    }
+  }
+
+  @Test
+  public void testDisabled() {
+    ResponseArchive disabled = new ResponseArchive(new JsonObject());
+    disabled.store(KEY, "JR1", JAN, JAN, bytes("response"));
+
+    assertThat(disabled.isEnabled()).isFalse();
+    assertThat(disabled.load(KEY, "JR1", JAN)).isEmpty();
+  }
+
+  @Test
+  public void testStoreAndLoad() {
+    archive.store(KEY, "JR1", JAN, MAR, bytes("response"));
+
+    for (YearMonth month = JAN; !month.isAfter(MAR); month = month.plusMonths(1)) {
+      Optional<ResponseArchive.Entry> entry = archive.load(KEY, "JR1", month);
+      assertThat(entry).isPresent();
+      assertThat(entry.get().getContent()).isEqualTo(bytes("response"));
+      assertThat(entry.get().getBegin()).isEqualTo(JAN);
+      assertThat(entry.get().getEnd()).isEqualTo(MAR);
+    }
+    assertThat(archive.load(KEY, "JR1", MAR.plusMonths(1))).isEmpty();
+    assertThat(archive.load(KEY, "DB1", JAN)).isEmpty();
+    assertThat(archive.load("other", "JR1", JAN)).isEmpty();
+    assertThat(archive.getStatistics().getLong("stored")).isEqualTo(1);
+    assertThat(archive.getStatistics().getLong("hits")).isEqualTo(3);
+    assertThat(archive.getStatistics().getLong("misses")).isEqualTo(3);
+  }
+
+  @Test
+  public void testIdenticalResponsesStoredOnce() throws IOException {
+    archive.store(KEY, "JR1", JAN, JAN, bytes("response"));
+    archive.store("other", "JR1", MAR, MAR, bytes("response"));
+
+    assertThat(countFiles("objects")).isEqualTo(1);
+    assertThat(countFiles("index")).isEqualTo(2);
+    assertThat(archive.load("other", "JR1", MAR)).isPresent();
+  }
+
+  @Test
+  public void testLaterResponseReplacesMonth() {
+    archive.store(KEY, "JR1", JAN, MAR, bytes("range"));
+    archive.store(KEY, "JR1", MAR, MAR, bytes("month"));
+
+    assertThat(archive.load(KEY, "JR1", JAN).get().getContent()).isEqualTo(bytes("range"));
+    assertThat(archive.load(KEY, "JR1", MAR).get().getContent()).isEqualTo(bytes("month"));
+  }
+
+  @Test
+  public void testEvictExpired() throws IOException {
+    archive.store(KEY, "JR1", JAN, JAN, bytes("response"));
+    setLastModified("objects", System.currentTimeMillis() - TimeUnit.DAYS.toMillis(91));
+
+    archive.evict();
+
+    assertThat(countFiles("objects")).isZero();
+    assertThat(archive.load(KEY, "JR1", JAN)).isEmpty();
+    assertThat(countFiles("index")).isZero();
+    assertThat(archive.getStatistics().getLong("evicted")).isEqualTo(1);
+  }
+
+  @Test
+  public void testEvictExceedingMaxSize() throws IOException {
+    archive = createArchive(new JsonObject().put("maxSizeMb", 0));
+    archive.store(KEY, "JR1", JAN, JAN, bytes("old"));
+    archive.store(KEY, "JR1", MAR, MAR, bytes("new"));
+
+    archive.evict();
+
+    assertThat(countFiles("objects")).isZero();
+    assertThat(archive.load(KEY, "JR1", JAN)).isEmpty();
+    assertThat(archive.load(KEY, "JR1", MAR)).isEmpty();
+  }
+
+  @Test
+  public void testArchivedServiceEndpoint() throws InterruptedException {
+    archive.store(KEY, "JR1", JAN, MAR, bytes("response"));
+    Report report = new Report();
+    List<String> decoded = new CopyOnWriteArrayList<>();
+    ServiceEndpoint sep =
+        new ArchivedServiceEndpoint(
+            archive,
+            KEY,
+            "archive-test",
+            (entry, month) -> {
+              decoded.add(new String(entry.getContent(), StandardCharsets.UTF_8) + " " + month);
+              return report;
+            });
+
+    Future<Report> found = sep.fetchReport("JR1", "2019-02-01", "2019-02-28");
+    Future<Report> missing = sep.fetchReport("JR1", "2019-04-01", "2019-04-30");
+    Future<Report> range = sep.fetchReport("JR1", "2019-01-01", "2019-03-31");
+    CountDownLatch done = new CountDownLatch(2);
+    found.setHandler(ar -> done.countDown());
+    missing.setHandler(ar -> done.countDown());
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(sep.isRangeSupported()).isFalse();
+    assertThat(found.result()).isSameAs(report);
+    assertThat(decoded).containsExactly("response 2019-02");
+    assertThat(missing.cause().getMessage()).contains("not found");
+    assertThat(range.failed()).isTrue();
+  }
+}
@@ -1,22 +1,50 @@
 package org.olf.erm.usage.harvester.endpoints;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
 import java.util.List;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
 import org.folio.rest.jaxrs.model.HarvestingConfig;
+import org.folio.rest.jaxrs.model.Report;
 import org.folio.rest.jaxrs.model.SushiConfig;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.junit.runner.RunWith;
 
+@RunWith(VertxUnitRunner.class)
 public class ServiceEndpointTest {
 
+  private static Vertx vertx;
+  private static ServiceEndpointContext endpointContext;
+
   private static UsageDataProvider provider =
       new UsageDataProvider()
           .withHarvestingConfig(
               new HarvestingConfig()
                   .withSushiConfig(new SushiConfig().withServiceType("TestProviderType")));
 
+  @BeforeClass
+  public static void beforeClass() {
+    vertx = Vertx.vertx();
+    endpointContext = ServiceEndpointContext.init(vertx, vertx.getOrCreateContext());
+  }
+
+  @AfterClass
+  public static void afterClass(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
   @Test
   public void testGetAvailableProviders() {
     List<ServiceEndpointProvider> list = ServiceEndpoint.getAvailableProviders();
@@ -25,10 +53,22 @@ public class ServiceEndpointTest {
     assertThat(list.get(0).getServiceType()).isEqualTo("TestProviderType");
   }
 
+  @Test
+  public void testRegistry() {
+    ServiceEndpointRegistry registry = ServiceEndpointRegistry.get();
+    assertThat(registry).isSameAs(ServiceEndpointRegistry.get());
+    assertThat(registry.getProvider("TestProviderType")).isInstanceOf(TestProvider.class);
+    assertThat(registry.getProvider("TestProviderType"))
+        .isSameAs(ServiceEndpoint.getAvailableProviders().get(0));
+    assertThat(registry.getProvider("TestProviderType2")).isNull();
+    assertThat(registry.getProvider(null)).isNull();
+  }
+
   @Test
   public void testCreateNoImplGiven() {
     ServiceEndpoint sep =
-        ServiceEndpoint.create(provider, new AggregatorSetting().withServiceType(""));
+        ServiceEndpoint.create(
+            provider, new AggregatorSetting().withServiceType(""), endpointContext);
     assertThat(sep).isNull();
   }
 
@@ -36,7 +76,9 @@ public class ServiceEndpointTest {
   public void testCreateNoImplFound() {
     ServiceEndpoint sep =
         ServiceEndpoint.create(
-            provider, new AggregatorSetting().withServiceType("TestProviderType2"));
+            provider,
+            new AggregatorSetting().withServiceType("TestProviderType2"),
+            endpointContext);
     assertThat(sep).isNull();
   }
 
@@ -44,19 +86,58 @@ public class ServiceEndpointTest {
   public void testCreateOk() {
     ServiceEndpoint sep =
         ServiceEndpoint.create(
-            provider, new AggregatorSetting().withServiceType("TestProviderType"));
+            provider,
+            new AggregatorSetting().withServiceType("TestProviderType"),
+            endpointContext);
     assertThat(sep).isInstanceOf(TestProviderImpl.class);
   }
 
   @Test
   public void testCreateOkNoAggregator() {
-    ServiceEndpoint sep = ServiceEndpoint.create(provider, null);
+    ServiceEndpoint sep = ServiceEndpoint.create(provider, null, endpointContext);
     assertThat(sep).isInstanceOf(TestProviderImpl.class);
   }
 
+  @Test
+  public void testContext() {
+    Vertx other = Vertx.vertx();
+    try {
+      assertThatThrownBy(() -> ServiceEndpointContext.get(other))
+          .isInstanceOf(IllegalStateException.class);
+      ServiceEndpointContext ctx = ServiceEndpointContext.init(other, other.getOrCreateContext());
+      assertThat(ctx).isSameAs(ServiceEndpointContext.get(other));
+      assertThat(ctx).isSameAs(ServiceEndpointContext.init(other, other.getOrCreateContext()));
+      assertThat(ctx.getVertx()).isSameAs(other);
+    } finally {
+      other.close();
+    }
+  }
+
+  @Test
+  public void testGetHttpClient(TestContext context) {
+    Async async = context.async();
+    Future<HttpClient> first = endpointContext.getHttpClient("test", HttpClientOptions::new);
+    Future<HttpClient> second = endpointContext.getHttpClient("test", HttpClientOptions::new);
+    CompositeFuture.all(first, second)
+        .setHandler(
+            context.asyncAssertSuccess(
+                cf -> {
+                  assertThat(first.result()).isSameAs(second.result());
+                  endpointContext
+                      .getHttpClient("test", HttpClientOptions::new)
+                      .setHandler(
+                          context.asyncAssertSuccess(
+                              c -> {
+                                assertThat(c).isSameAs(first.result());
+                                async.complete();
+                              }));
+                }));
+  }
+
   @Test
   public void testCreateNoHarvesterConfig() {
-    ServiceEndpoint sep = ServiceEndpoint.create(new UsageDataProvider(), null);
+    ServiceEndpoint sep =
+        ServiceEndpoint.create(new UsageDataProvider(), null, endpointContext);
     assertThat(sep).isNull();
   }
 
@@ -64,7 +145,29 @@ public class ServiceEndpointTest {
   public void testCreateNoSushiConfig() {
     ServiceEndpoint sep =
         ServiceEndpoint.create(
-            new UsageDataProvider().withHarvestingConfig(new HarvestingConfig()), null);
+            new UsageDataProvider().withHarvestingConfig(new HarvestingConfig()),
+            null,
+            endpointContext);
     assertThat(sep).isNull();
   }
+
+  @Test
+  public void testFetchReportDefault() {
+    Future<Report> report = new TestProviderImpl().fetchReport("JR1", "2018-01-01", "2018-01-31");
+    assertThat(report.succeeded()).isTrue();
+    assertThat(report.result()).isNotNull();
+  }
+
+  @Test
+  public void testFetchReportDefaultInvalidJson() {
+    Future<Report> report =
+        new TestProviderImpl() {
+          @Override
+          public Future<String> fetchSingleReport(
+              String report, String beginDate, String endDate) {
+            return Future.succeededFuture("no json");
+          }
+        }.fetchReport("JR1", "2018-01-01", "2018-01-31");
+    assertThat(report.failed()).isTrue();
+  }
 }
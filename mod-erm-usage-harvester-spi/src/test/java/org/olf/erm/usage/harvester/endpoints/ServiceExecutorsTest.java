@@ -0,0 +1,80 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class ServiceExecutorsTest {
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    ServiceExecutors.configure(null);
+  }
+
+  private Future<String> block(String pool) {
+    return ServiceExecutors.executeBlocking(
+        pool,
+        p -> {
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          p.complete(Thread.currentThread().getName());
+        });
+  }
+
+  @Test
+  public void testSaturation() throws InterruptedException {
+    ServiceExecutors.configure(
+        new JsonObject()
+            .put(
+                "serviceExecutors",
+                new JsonObject()
+                    .put("default", new JsonObject().put("poolSize", 5))
+                    .put("saturation", new JsonObject().put("poolSize", 1).put("queueSize", 1))));
+
+    Future<String> running = block("saturation");
+    Future<String> queued = block("saturation");
+    Future<String> rejected = block("saturation");
+
+    assertThat(rejected.failed()).isTrue();
+    assertThat(rejected.cause()).isInstanceOf(RejectedExecutionException.class);
+    JsonObject stats = ServiceExecutors.getStatistics().getJsonObject("saturation");
+    assertThat(stats.getInteger("poolSize")).isEqualTo(1);
+    assertThat(stats.getInteger("queued")).isEqualTo(1);
+    assertThat(stats.getLong("rejected")).isEqualTo(1);
+
+    release.countDown();
+    CountDownLatch done = new CountDownLatch(2);
+    running.setHandler(ar -> done.countDown());
+    queued.setHandler(ar -> done.countDown());
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(running.result()).startsWith("sushi-saturation-");
+    assertThat(queued.succeeded()).isTrue();
+  }
+
+  @Test
+  public void testException() throws InterruptedException {
+    Future<String> future =
+        ServiceExecutors.executeBlocking(
+            "exception",
+            p -> {
+              throw new IllegalStateException("boom");
+            });
+
+    CountDownLatch done = new CountDownLatch(1);
+    future.setHandler(ar -> done.countDown());
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(future.cause()).hasMessage("boom");
+  }
+}
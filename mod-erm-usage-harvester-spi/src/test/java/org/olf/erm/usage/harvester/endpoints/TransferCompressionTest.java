@@ -0,0 +1,80 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.io.ByteStreams;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import org.junit.After;
+import org.junit.Test;
+
+public class TransferCompressionTest {
+
+  private static final byte[] CONTENT =
+      new String(new char[1000]).replace("\0", "COUNTER ").getBytes(StandardCharsets.UTF_8);
+
+  @After
+  public void tearDown() {
+    ServiceEndpointContext.configure(null);
+  }
+
+  private static byte[] gzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testDecode() throws IOException {
+    byte[] compressed = gzip(CONTENT);
+    try (InputStream is =
+        TransferCompression.decode("test-gzip", "gzip", new ByteArrayInputStream(compressed))) {
+      assertThat(ByteStreams.toByteArray(is)).isEqualTo(CONTENT);
+    }
+    try (InputStream is =
+        TransferCompression.decode("test-gzip", null, new ByteArrayInputStream(CONTENT))) {
+      assertThat(ByteStreams.toByteArray(is)).isEqualTo(CONTENT);
+    }
+
+    JsonObject stats = TransferCompression.getStatistics().getJsonObject("test-gzip");
+    assertThat(stats.getLong("responses")).isEqualTo(2);
+    assertThat(stats.getLong("compressedResponses")).isEqualTo(1);
+    assertThat(stats.getLong("wireBytes")).isEqualTo(compressed.length + CONTENT.length);
+    assertThat(stats.getLong("decodedBytes")).isEqualTo(2L * CONTENT.length);
+    assertThat(stats.getDouble("ratio")).isGreaterThan(1.0);
+  }
+
+  @Test
+  public void testUnsupportedEncoding() {
+    assertThatThrownBy(
+            () -> TransferCompression.decode("test", "br", new ByteArrayInputStream(CONTENT)))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("br");
+  }
+
+  @Test
+  public void testDisabledHosts() {
+    assertThat(TransferCompression.isEnabled("sushi.example.org")).isTrue();
+
+    ServiceEndpointContext.configure(
+        new JsonObject()
+            .put(
+                "compression",
+                new JsonObject().put("disabledHosts", new JsonArray().add("SUSHI.example.org"))));
+    assertThat(TransferCompression.isEnabled("sushi.example.org")).isFalse();
+    assertThat(TransferCompression.isEnabled("other.example.org")).isTrue();
+
+    ServiceEndpointContext.configure(
+        new JsonObject().put("compression", new JsonObject().put("enabled", false)));
+    assertThat(TransferCompression.isEnabled("other.example.org")).isFalse();
+  }
+}